@@ -0,0 +1,225 @@
+/**
+ * AlignBenchmark -- JMH benchmarks of the main alignment paths:
+ *
+ *        align        Aligner.align, end to end, over all the reads
+ *        extend       Aligner.extendMatch on every seed hit of the reads
+ *        parseRead    FastaFile loading of the reads
+ *        parseMapped  FastaFile loading of the reads, memory mapped
+ *        composite    FastaFile.getComposite( separator ) on the reference
+ *        layout       DisplayPanel.updateTracks of all the aligned reads
+ *
+ *       Each benchmark runs once per dataset; the time reported is per
+ *       call, so align, extend and layout cover every read or hit of
+ *       the dataset.
+ *
+ *       usage: java -jar bench/target/benchmarks.jar AlignBenchmark
+ *                   [ -p dataset=... ] [ JMH options ]
+ *          or  java prog9.AlignBenchmark [ dataset ... ]
+ *           a dataset is small, mid or large for the bundled data files,
+ *           or synthN for a random reference of N bases with reads sampled
+ *           from it (e.g. synth1000000). The default is small mid large
+ *           synth200000. Run from the directory of the data files.
+ */
+package prog9;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@Measurement( iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@Fork( 1 )
+public class AlignBenchmark
+{
+   //------------------------- class variables ---------------------------------
+   private final static int    synthReadLength = 100;
+   private final static double synthErrorRate = 0.02;
+
+   //------------------------- instance variables ------------------------------
+   @Param( { "small", "mid", "large", "synth200000" } )
+   public String          dataset;
+
+   private String         _readsFile;
+   private FastaFile      _ref;
+   private FastaFile      _reads;
+   private Aligner        _aligner;
+   private int[][]        _hits;       // read, reference position, read position
+   private DisplayPanel   _display;
+
+   //------------------ main ------------------------------------------
+   /**
+    * run the benchmarks on the datasets given, or the default ones
+    */
+   public static void main( String[] args ) throws RunnerException
+   {
+      ChainedOptionsBuilder options = new OptionsBuilder()
+                     .include( AlignBenchmark.class.getSimpleName() );
+      if ( args.length > 0 )
+         options.param( "dataset", args );
+      new Runner( options.build() ).run();
+   }
+   //------------------------ setup() ---------------------------
+   /**
+    * load the dataset, index it, collect the seed hits and align the
+    * reads for the layout
+    */
+   @Setup( Level.Trial )
+   public void setup() throws IOException
+   {
+      String[] files = dataFiles( dataset );
+      if ( files == null )
+         throw new IllegalArgumentException( "Unknown dataset: " + dataset );
+      _readsFile = files[ 1 ];
+      _ref = new FastaFile( files[ 0 ] );
+      _reads = new FastaFile( _readsFile );
+      _aligner = new Aligner();
+      _aligner.setReference( _ref );
+
+      // every 8-mer seed hit, as findAlign extends them
+      KmerIndex index = new KmerIndex( _ref.getPackedComposite(), 8 );
+      ArrayList<int[]> hits = new ArrayList<int[]>();
+      for ( int r = 0; r < _reads.size(); r++ )
+      {
+         PackedDNA read = _reads.get( r ).getPacked();
+         for ( int i = 0; i < read.length() - 8; i += 8 )
+         {
+            int slot = index.lookup( read, i );
+            if ( slot < 0 )
+               continue;
+            for ( int h = index.hitStart( slot ); h < index.hitEnd( slot ); h++ )
+               hits.add( new int[] { r, index.hitAt( h ), i } );
+         }
+      }
+      _hits = hits.toArray( new int[ hits.size() ][] );
+
+      // lay out all the aligned reads
+      _display = new DisplayPanel( null );
+      Aligner layout = new Aligner();
+      layout.setReference( _ref );
+      layout.setListener( new AlignmentListener()
+      {
+         public void readAligned( Alignment result )
+         {
+            DisplayPanel.addRead( result.getRead() );
+         }
+         public void readNotAligned( Alignment result ) {}
+         public void alignmentDone( int unaligned ) {}
+      } );
+      layout.align( _reads.iterator() );
+   }
+   //------------------------ tearDown() ---------------------------
+   @TearDown( Level.Trial )
+   public void tearDown()
+   {
+      _display.clearReads();
+   }
+   //------------------------ align() ---------------------------
+   @Benchmark
+   public int align()
+   {
+      return _aligner.align( _reads.iterator() );
+   }
+   //------------------------ extend() ---------------------------
+   @Benchmark
+   public int extend()
+   {
+      int total = 0;
+      for ( int[] hit: _hits )
+         total += _aligner.extendMatch( _reads.get( hit[ 0 ] ), hit[ 1 ], hit[ 2 ] );
+      return total;
+   }
+   //------------------------ parseRead() ---------------------------
+   @Benchmark
+   public int parseRead()
+   {
+      return new FastaFile( _readsFile ).size();
+   }
+   //------------------------ parseMapped() ---------------------------
+   @Benchmark
+   public int parseMapped()
+   {
+      return new FastaFile( _readsFile, true ).compositeLength();
+   }
+   //------------------------ composite() ---------------------------
+   @Benchmark
+   public int composite()
+   {
+      return _ref.getComposite( "**********" ).length();
+   }
+   //------------------------ layout() ---------------------------
+   @Benchmark
+   public void layout()
+   {
+      _display.updateTracks();
+   }
+   //------------------ dataFiles( String ) -----------------------
+   /**
+    * the reference and reads files of a dataset, or null if it is unknown
+    */
+   private static String[] dataFiles( String dataset ) throws IOException
+   {
+      if ( dataset.equals( "small" ))
+         return new String[] { "smallRef.txt", "smallReads.txt" };
+      if ( dataset.equals( "mid" ))
+         return new String[] { "ref.txt", "reads.txt" };
+      if ( dataset.equals( "large" ))
+         return new String[] { "largeRef.txt", "largeReads.txt" };
+      if ( dataset.startsWith( "synth" ))
+      {
+         try
+         {
+            return synthesize( Integer.parseInt( dataset.substring( 5 )));
+         }
+         catch ( NumberFormatException nfe )
+         {
+         }
+      }
+      return null;
+   }
+   //------------------ synthesize( int ) -----------------------
+   /**
+    * Write a random reference of refLength bases, and reads that cover it
+    * about twice, with some bases changed, to temporary files.
+    */
+   private static String[] synthesize( int refLength ) throws IOException
+   {
+      Random random = new Random( refLength );   // repeatable
+      String bases = "ACGT";
+      char[] ref = new char[ refLength ];
+      for ( int i = 0; i < refLength; i++ )
+         ref[ i ] = bases.charAt( random.nextInt( 4 ));
+
+      File refFile = File.createTempFile( "synthRef", ".txt" );
+      refFile.deleteOnExit();
+      PrintWriter out = new PrintWriter( new BufferedWriter(
+                                            new FileWriter( refFile )));
+      out.println( ">synth" + refLength );
+      for ( int i = 0; i < refLength; i += 50 )
+         out.println( new String( ref, i, Math.min( 50, refLength - i )));
+      out.close();
+
+      File readsFile = File.createTempFile( "synthReads", ".txt" );
+      readsFile.deleteOnExit();
+      out = new PrintWriter( new BufferedWriter( new FileWriter( readsFile )));
+      int nReads = 2 * refLength / synthReadLength;
+      for ( int r = 0; r < nReads; r++ )
+      {
+         int pos = random.nextInt( refLength - synthReadLength );
+         char[] read = Arrays.copyOfRange( ref, pos, pos + synthReadLength );
+         for ( int i = 0; i < read.length; i++ )
+            if ( random.nextDouble() < synthErrorRate )
+               read[ i ] = bases.charAt( random.nextInt( 4 ));
+         out.println( ">read" + r + " " + pos );
+         out.println( new String( read ));
+      }
+      out.close();
+      return new String[] { refFile.getPath(), readsFile.getPath() };
+   }
+}
@@ -0,0 +1,151 @@
+/**
+ * LoadBenchmark -- JMH benchmark of loading FASTA files with FastaFile
+ *       against the original Scanner and String concatenation parser it
+ *       replaced.
+ *
+ *       Each input file is first scaled up into a temporary file whose
+ *       records are the originals repeated scale times, so that the
+ *       records are long enough for the cost per record to show.
+ *
+ *       usage: java -jar bench/target/benchmarks.jar LoadBenchmark
+ *                   [ -p scale=... ] [ -p file=... ] [ JMH options ]
+ *          or  java prog9.LoadBenchmark [ scale [ file ... ] ]
+ *           scale defaults to 20; files default to largeRef.txt and
+ *           largeReads.txt
+ */
+package prog9;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 1 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class LoadBenchmark
+{
+   //------------------------- class variables ---------------------------------
+   private final static int lineLength = 50;
+
+   //------------------------- instance variables ------------------------------
+   @Param( { "20" } )
+   public int       scale;
+
+   @Param( { "largeRef.txt", "largeReads.txt" } )
+   public String    file;
+
+   private File     _scaled;
+
+   //------------------ main ------------------------------------------
+   public static void main( String[] args ) throws RunnerException
+   {
+      ChainedOptionsBuilder options = new OptionsBuilder()
+                     .include( LoadBenchmark.class.getSimpleName() );
+      if ( args.length > 0 )
+         options.param( "scale", args[ 0 ] );
+      if ( args.length > 1 )
+         options.param( "file", Arrays.copyOfRange( args, 1, args.length ));
+      new Runner( options.build() ).run();
+   }
+   //------------------------ setup() ---------------------------
+   @Setup( Level.Trial )
+   public void setup() throws IOException
+   {
+      _scaled = scaleUp( file, scale );
+   }
+   //------------------------ tearDown() ---------------------------
+   @TearDown( Level.Trial )
+   public void tearDown()
+   {
+      _scaled.delete();
+   }
+   //------------------------ scanner() ---------------------------
+   /**
+    * Scanner + String concatenation
+    */
+   @Benchmark
+   public Vector<DNASequence> scanner() throws IOException
+   {
+      return scannerLoad( _scaled.getPath() );
+   }
+   //------------------------ fastaFile() ---------------------------
+   /**
+    * FastaFile byte scanner
+    */
+   @Benchmark
+   public FastaFile fastaFile()
+   {
+      return new FastaFile( _scaled.getPath() );
+   }
+   //------------------------ scaleUp( String, int ) ---------------------------
+   /**
+    * write a temporary copy of the file in which each record's sequence is
+    * repeated scale times
+    */
+   private static File scaleUp( String fileName, int scale ) throws IOException
+   {
+      File scaled = File.createTempFile( "scaled", ".fasta" );
+      PrintWriter out = new PrintWriter( new BufferedWriter(
+                                            new FileWriter( scaled )));
+      Iterator<DNASequence> iter = new FastaFile( fileName ).iterator();
+      while ( iter.hasNext() )
+      {
+         DNASequence seq = iter.next();
+         String dna = seq.getDNA();
+         out.println( seq.getHeader() );
+         StringBuilder line = new StringBuilder();
+         for ( int r = 0; r < scale; r++ )
+         {
+            for ( int i = 0; i < dna.length(); i++ )
+            {
+               line.append( dna.charAt( i ));
+               if ( line.length() == lineLength )
+               {
+                  out.println( line );
+                  line.setLength( 0 );
+               }
+            }
+         }
+         if ( line.length() > 0 )
+            out.println( line );
+      }
+      out.close();
+      return scaled;
+   }
+   //------------------------ scannerLoad( String ) ---------------------------
+   /**
+    * the original FastaFile parser: a Scanner reading lines and each
+    * record's bases concatenated with +=
+    */
+   private static Vector<DNASequence> scannerLoad( String fileName )
+      throws IOException
+   {
+      Vector<DNASequence> sequences = new Vector<DNASequence>();
+      Scanner scanner = new Scanner( new File( fileName ));
+      String nextHeader = scanner.nextLine();
+      while ( nextHeader != null )
+      {
+         String header = nextHeader;
+         String dna = "";
+         nextHeader = null;
+         while ( nextHeader == null && scanner.hasNextLine() )
+         {
+            String line = scanner.nextLine();
+            if ( line.startsWith( ">" ))
+               nextHeader = line;
+            else
+               dna += line;
+         }
+         sequences.add( new DNASequence( header, dna ));
+      }
+      scanner.close();
+      return sequences;
+   }
+}
@@ -0,0 +1,200 @@
+/**
+ * AlignLog -- a leveled log whose file is written by a background thread.
+ *
+ *       Callers put messages on a bounded ring buffer and return at once;
+ *       the writer thread drains the buffer into a buffered file, and
+ *       flushes only when the buffer runs empty. If the writer falls
+ *       behind, callers wait for room rather than lose messages. If
+ *       writing the file fails, logging is turned off and the writer
+ *       discards whatever is queued, so callers never wait on it.
+ *
+ *       Build messages only when they will be written:
+ *
+ *          if ( log.isEnabled( AlignLog.DEBUG ))
+ *             log.debug( "read " + id + ...  );
+ *
+ *       Key public methods:
+ *          AlignLog( String fileName, int level )
+ *          boolean isEnabled( int level )
+ *          void error( String ), info( String ), debug( String )
+ *          void close()
+ */
+package prog9;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class AlignLog implements Closeable
+{
+   //------------------------- class variables ---------------------------------
+   public final static int    OFF = 0;
+   public final static int    ERROR = 1;
+   public final static int    INFO = 2;
+   public final static int    DEBUG = 3;
+
+   private final static int    queueSize = 8192;
+   private final static int    bufferSize = 1 << 16;
+   private final static String[] levelNames = { "", "ERROR", "INFO", "DEBUG" };
+   private final static String endOfLog = new String( "" );  // sentinel
+
+   //------------------------- instance variables ------------------------------
+   private volatile int           _level;
+   private BlockingQueue<String>  _queue;
+   private Thread                 _writer = null;
+
+   //---------------------- constructor ----------------------------------------
+   /**
+    * log messages at level and more severe to fileName; a null fileName
+    * or level OFF, or a file that cannot be opened, turns logging off.
+    */
+   public AlignLog( String fileName, int level )
+   {
+      _level = OFF;
+      if ( fileName == null || level <= OFF )
+         return;
+      final Writer out;
+      try
+      {
+         out = new BufferedWriter( new FileWriter( fileName, false ), bufferSize );
+      }
+      catch ( IOException ioe )
+      {
+         System.err.println( "***Error: unable to open log file " + fileName
+                             + ", no logging!" );
+         return;
+      }
+      _level = Math.min( level, DEBUG );
+      _queue = new ArrayBlockingQueue<String>( queueSize );
+      _writer = new Thread( new Runnable()
+      {
+         public void run()
+         {
+            drain( out );
+         }
+      }, "AlignLog writer" );
+      _writer.setDaemon( true );
+      _writer.start();
+   }
+   //---------------------- isEnabled( int ) ----------------------------------
+   /**
+    * true if messages at level are written
+    */
+   public boolean isEnabled( int level )
+   {
+      return level <= _level;
+   }
+   //---------------------- error( String ) ----------------------------------
+   public void error( String msg )
+   {
+      log( ERROR, msg );
+   }
+   //---------------------- info( String ) ----------------------------------
+   public void info( String msg )
+   {
+      log( INFO, msg );
+   }
+   //---------------------- debug( String ) ----------------------------------
+   public void debug( String msg )
+   {
+      log( DEBUG, msg );
+   }
+   //---------------------- close() ----------------------------------
+   /**
+    * write everything queued so far, then close the file. Messages logged
+    * after this, including any from a thread that was already in log()
+    * when close() began, are silently dropped.
+    */
+   public void close()
+   {
+      if ( _writer == null )
+         return;
+      _level = OFF;
+      try
+      {
+         _queue.put( endOfLog );
+         _writer.join();
+      }
+      catch ( InterruptedException ie )
+      {
+         Thread.currentThread().interrupt();
+      }
+      _writer = null;
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //---------------------- log( int, String ) ----------------------------------
+   private void log( int level, String msg )
+   {
+      if ( level > _level )
+         return;
+      try
+      {
+         _queue.put( levelNames[ level ] + ": " + msg );
+      }
+      catch ( InterruptedException ie )
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+   //---------------------- drain( Writer ) ----------------------------------
+   /**
+    * the writer thread: write messages in batches until the sentinel
+    */
+   private void drain( Writer out )
+   {
+      ArrayList<String> batch = new ArrayList<String>( queueSize );
+      try
+      {
+         while ( true )
+         {
+            batch.add( _queue.take() );
+            _queue.drainTo( batch );
+            for ( String msg: batch )
+            {
+               if ( msg == endOfLog )
+               {
+                  out.close();
+                  return;
+               }
+               out.write( msg );
+               out.write( '\n' );
+            }
+            batch.clear();
+            if ( _queue.isEmpty() )
+               out.flush();
+         }
+      }
+      catch ( IOException ioe )
+      {
+         System.err.println( "***Error: writing log file failed: " + ioe
+                             + ", no more logging!" );
+      }
+      catch ( InterruptedException ie )
+      {
+         return;
+      }
+      // the file is unusable: turn logging off and keep taking messages
+      // until close()'s sentinel, unless it was in the failed batch, so
+      // that no caller waits on a full queue
+      _level = OFF;
+      try
+      {
+         out.close();
+      }
+      catch ( IOException ignored )
+      {
+      }
+      for ( String msg: batch )
+         if ( msg == endOfLog )
+            return;
+      try
+      {
+         while ( _queue.take() != endOfLog )
+            ;
+      }
+      catch ( InterruptedException ie )
+      {
+      }
+   }
+}
@@ -0,0 +1,332 @@
+/**
+ * AlignMetrics -- counts and times what the Aligner does, so that a run
+ *       can say where its time went and not only how many reads did not
+ *       align.
+ *
+ *       Every worker thread records into the same AlignMetrics. The
+ *       counters are LongAdders, which stripe their updates across cells
+ *       so threads do not contend for one cache line, and the histograms
+ *       are arrays of them. A histogram has 4 buckets per power of two
+ *       ( as HdrHistogram does with 2 significant bits ), so any value
+ *       from 1 ns to hours is kept to within 25% in 248 buckets.
+ *
+ *       Stages, each a histogram of nanoseconds per event:
+ *           parse  -- taking a read, or a pair, from the input ( a
+ *                     FastaReader parses it then )
+ *           seed   -- seeding one search and grouping the hits by diagonal
+ *           extend -- extending the best diagonals of one search
+ *           report -- recording one result and telling the listener
+ *       A search is one findAlign: a read, or one read of a pair aligned
+ *       on its own or in its mate's window, so a pair may take several.
+ *
+ *       Key public methods:
+ *           long reads(), aligned(), unaligned(), searches(), seedHits(),
+ *                    extensions(), earlyExits() -- the counters
+ *           Histogram parse(), seed(), extend(), report(),
+ *                    seedHitsPerSearch()
+ *           String summary() -- one line for a status bar
+ *           String toJson(), void writeJson( String fileName )
+ *           void reset()
+ */
+package prog9;
+
+import java.io.*;
+import java.util.concurrent.atomic.*;
+
+public class AlignMetrics
+{
+   //------------------------- instance variables ------------------------------
+   private LongAdder   _reads = new LongAdder();
+   private LongAdder   _aligned = new LongAdder();
+   private LongAdder   _searches = new LongAdder();
+   private LongAdder   _seedHits = new LongAdder();
+   private LongAdder   _extensions = new LongAdder();
+   private LongAdder   _earlyExits = new LongAdder();
+   private Histogram   _parse = new Histogram();
+   private Histogram   _seed = new Histogram();
+   private Histogram   _extend = new Histogram();
+   private Histogram   _report = new Histogram();
+   private Histogram   _hitsPerSearch = new Histogram();
+
+   //---------------------- recording ----------------------------------------
+   /**
+    * a read, or a pair of reads, was taken from the input in nanos
+    */
+   public void readParsed( long nanos )
+   {
+      _parse.record( nanos );
+   }
+   /**
+    * one search found hits seed hits in seedNanos, then made extensions
+    * extensions, of which earlyExits were abandoned, in extendNanos
+    */
+   public void searched( int hits, long seedNanos, int extensions,
+                         int earlyExits, long extendNanos )
+   {
+      _searches.increment();
+      _seedHits.add( hits );
+      _hitsPerSearch.record( hits );
+      _seed.record( seedNanos );
+      _extensions.add( extensions );
+      _earlyExits.add( earlyExits );
+      _extend.record( extendNanos );
+   }
+   /**
+    * the result for one read was reported in nanos
+    */
+   public void reported( boolean aligned, long nanos )
+   {
+      _reads.increment();
+      if ( aligned )
+         _aligned.increment();
+      _report.record( nanos );
+   }
+   //---------------------- counters ----------------------------------------
+   public long reads()
+   {
+      return _reads.sum();
+   }
+   public long aligned()
+   {
+      return _aligned.sum();
+   }
+   public long unaligned()
+   {
+      return _reads.sum() - _aligned.sum();
+   }
+   public long searches()
+   {
+      return _searches.sum();
+   }
+   public long seedHits()
+   {
+      return _seedHits.sum();
+   }
+   public long extensions()
+   {
+      return _extensions.sum();
+   }
+   /**
+    * extensions the Extender abandoned as hopeless, scoring 0
+    */
+   public long earlyExits()
+   {
+      return _earlyExits.sum();
+   }
+   //---------------------- histograms ----------------------------------------
+   public Histogram parse()
+   {
+      return _parse;
+   }
+   public Histogram seed()
+   {
+      return _seed;
+   }
+   public Histogram extend()
+   {
+      return _extend;
+   }
+   public Histogram report()
+   {
+      return _report;
+   }
+   public Histogram seedHitsPerSearch()
+   {
+      return _hitsPerSearch;
+   }
+   //---------------------- reset() ----------------------------------------
+   /**
+    * start counting again from 0; not atomic with respect to threads
+    * still recording
+    */
+   public void reset()
+   {
+      for ( LongAdder a: new LongAdder[] { _reads, _aligned, _searches,
+                                           _seedHits, _extensions, _earlyExits } )
+         a.reset();
+      for ( Histogram h: new Histogram[] { _parse, _seed, _extend, _report,
+                                           _hitsPerSearch } )
+         h.reset();
+   }
+   //---------------------- summary() ----------------------------------------
+   /**
+    * reads, hits and extensions per search, and the median microseconds of
+    * the seed and extend stages
+    */
+   public String summary()
+   {
+      long searches = Math.max( 1, searches() );
+      return String.format( "Reads: %d  hits/search: %.1f  ext/search: %.1f"
+                            + "  seed: %.1fus  extend: %.1fus",
+                            reads(), (double) seedHits() / searches,
+                            (double) extensions() / searches,
+                            _seed.percentile( 50 ) / 1000.0,
+                            _extend.percentile( 50 ) / 1000.0 );
+   }
+   //---------------------- toJson() ----------------------------------------
+   /**
+    * all the counters and histograms as a JSON object
+    */
+   public String toJson()
+   {
+      StringBuilder json = new StringBuilder( 4096 );
+      json.append( "{\n" );
+      json.append( "  \"reads\": " ).append( reads() ).append( ",\n" );
+      json.append( "  \"aligned\": " ).append( aligned() ).append( ",\n" );
+      json.append( "  \"unaligned\": " ).append( unaligned() ).append( ",\n" );
+      json.append( "  \"searches\": " ).append( searches() ).append( ",\n" );
+      json.append( "  \"seedHits\": " ).append( seedHits() ).append( ",\n" );
+      json.append( "  \"extensions\": " ).append( extensions() ).append( ",\n" );
+      json.append( "  \"earlyExits\": " ).append( earlyExits() ).append( ",\n" );
+      json.append( "  \"seedHitsPerSearch\": " );
+      _hitsPerSearch.appendJson( json );
+      json.append( ",\n  \"stageNanos\": {\n" );
+      json.append( "    \"parse\": " );
+      _parse.appendJson( json );
+      json.append( ",\n    \"seed\": " );
+      _seed.appendJson( json );
+      json.append( ",\n    \"extend\": " );
+      _extend.appendJson( json );
+      json.append( ",\n    \"report\": " );
+      _report.appendJson( json );
+      json.append( "\n  }\n}\n" );
+      return json.toString();
+   }
+   //---------------------- writeJson( String ) ----------------------------------
+   public void writeJson( String fileName ) throws IOException
+   {
+      try ( Writer out = new FileWriter( fileName ))
+      {
+         out.write( toJson() );
+      }
+   }
+
+   //++++++++++++++++++++++++ public inner class +++++++++++++++++++++++++++
+   //------------------------ class Histogram --------------------------------
+   /**
+    * Histogram -- counts of non-negative values in log buckets: values
+    *       0 - 3 each have a bucket, then each power of two is split in 4.
+    */
+   public static class Histogram
+   {
+      private final static int  BUCKETS = 248;   // up to Long.MAX_VALUE
+
+      private LongAdder[]       _counts = new LongAdder[ BUCKETS ];
+      private LongAdder         _total = new LongAdder();
+      private LongAccumulator   _max = new LongAccumulator( Math::max, 0 );
+
+      //------------------ constructor ------------------------------
+      public Histogram()
+      {
+         for ( int b = 0; b < BUCKETS; b++ )
+            _counts[ b ] = new LongAdder();
+      }
+      //------------------ record( long ) ------------------------------
+      public void record( long value )
+      {
+         value = Math.max( 0, value );
+         _counts[ bucket( value ) ].increment();
+         _total.add( value );
+         _max.accumulate( value );
+      }
+      //------------------ count() ------------------------------
+      public long count()
+      {
+         long n = 0;
+         for ( LongAdder c: _counts )
+            n += c.sum();
+         return n;
+      }
+      //------------------ total() ------------------------------
+      public long total()
+      {
+         return _total.sum();
+      }
+      //------------------ max() ------------------------------
+      public long max()
+      {
+         return _max.get();
+      }
+      //------------------ mean() ------------------------------
+      public double mean()
+      {
+         long n = count();
+         return n == 0 ? 0 : (double) total() / n;
+      }
+      //------------------ percentile( double ) ------------------------------
+      /**
+       * the highest value of the bucket that holds the given percentile
+       * ( 0 - 100 ) of the values, but no more than the largest value
+       * recorded; 0 if there are none
+       */
+      public long percentile( double percent )
+      {
+         long n = count();
+         if ( n == 0 )
+            return 0;
+         long rank = Math.max( 1, (long) Math.ceil( n * percent / 100 ));
+         long seen = 0;
+         for ( int b = 0; b < BUCKETS; b++ )
+         {
+            seen += _counts[ b ].sum();
+            if ( seen >= rank )
+               return Math.min( max(), lowest( b + 1 ) - 1 );
+         }
+         return max();
+      }
+      //------------------ reset() ------------------------------
+      public void reset()
+      {
+         for ( LongAdder c: _counts )
+            c.reset();
+         _total.reset();
+         _max.reset();
+      }
+      //------------------ appendJson( StringBuilder ) ------------------------
+      /**
+       * the summary statistics, then [ lowest value, count ] of each
+       * bucket that is not empty
+       */
+      public void appendJson( StringBuilder json )
+      {
+         json.append( "{ \"count\": " ).append( count() );
+         json.append( ", \"mean\": " ).append( Math.round( mean() ));
+         json.append( ", \"p50\": " ).append( percentile( 50 ));
+         json.append( ", \"p90\": " ).append( percentile( 90 ));
+         json.append( ", \"p99\": " ).append( percentile( 99 ));
+         json.append( ", \"max\": " ).append( max() );
+         json.append( ", \"buckets\": [" );
+         String comma = " ";
+         for ( int b = 0; b < BUCKETS; b++ )
+         {
+            long c = _counts[ b ].sum();
+            if ( c == 0 )
+               continue;
+            json.append( comma ).append( '[' ).append( lowest( b ))
+                .append( ", " ).append( c ).append( ']' );
+            comma = ", ";
+         }
+         json.append( " ] }" );
+      }
+      //------------------ bucket( long ) ------------------------------
+      private static int bucket( long value )
+      {
+         if ( value < 4 )
+            return (int) value;
+         int bit = 63 - Long.numberOfLeadingZeros( value );
+         return 4 * ( bit - 1 ) + (int) (( value >>> ( bit - 2 )) & 3 );
+      }
+      //------------------ lowest( int ) ------------------------------
+      /**
+       * the lowest value that goes in bucket b
+       */
+      private static long lowest( int b )
+      {
+         if ( b < 4 )
+            return b;
+         if ( b >= BUCKETS )
+            return Long.MAX_VALUE;
+         return (long) ( 4 + b % 4 ) << ( b / 4 - 1 );
+      }
+   }
+}
@@ -0,0 +1,985 @@
+/**
+ * Aligner.java -- Aligns read sequences against a reference genome
+ * 
+ * Modified 
+ * kj @ Spring 2012
+ */
+package prog9;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+
+public class Aligner
+{
+   //------------------- class variables ------------------------------
+   private final static int defaultSeedLength = 8;
+   private final static int batchSize = 4096; // reads in memory while streaming
+   private final static String defaultLogFile = "alignmentLog.txt";
+   private final static int defaultMaxInsert = 1000;
+   private final static int maxMappingQuality = 60;
+   private final static int mappingQualityPerPercent = 6; // per point of score lead
+   //------------------ instance variables ----------------------------
+   
+   private FastaFile    _reference = null;
+   private FastaFile    _reads = null;
+   private PackedDNA    _refDNA;
+   private ContigTable  _contigs;        // the contigs of _refDNA
+   private SeedIndex    _index = null;   // seed index of _refDNA
+   private String       _seedShape = KmerIndex.contiguous( defaultSeedLength );
+   private int          _seedStride = defaultSeedLength;  // read bases between seeds
+   private int          _minimizerWindow = 0; // > 0 for a MinimizerIndex
+   private boolean      _useFMIndex = false;
+   private boolean      _indexFiles = true;  // keep indexes next to the reference
+   private boolean      _bothStrands = true; // also align reverse complements
+   private int          _minInsert = 0;  // fragment lengths of a proper pair
+   private int          _maxInsert = defaultMaxInsert;
+   private boolean      _alignAlways = true;
+   private int          _minPercentMatch = 80;
+   private AlignLog     _log;
+   private int          _threadCount = 1;    // workers used by align()
+   private AlignmentListener _listener = null; // told about every result
+   private Extender     _extender = new UngappedExtender(); // scores seed hits
+   private int          _maxDiagonals = 32;  // diagonals extended per read
+   private int          _secondaryHits = 0;  // secondary alignments per read
+   private AlignMetrics _metrics = new AlignMetrics();
+   private ThreadLocal<AlignContext> _context = new ThreadLocal<AlignContext>()
+   {
+      protected AlignContext initialValue()
+      {
+         return new AlignContext();
+      }
+   };
+   //------------------- constructors ----------------------------------
+   /**
+    * log summary information to alignmentLog.txt
+    */
+   public Aligner() 
+   {
+      this( new AlignLog( defaultLogFile, AlignLog.INFO ));
+   }
+   /**
+    * log to the given log; DEBUG level adds a line for every read
+    */
+   public Aligner( AlignLog log ) 
+   {
+      _log = log;
+   }
+   //----------------------- setReference( FastaFile ) --------------------
+   /**
+    * set the reference genome and build the seed index over it once, so
+    * that finding a seed is a table lookup rather than a reference scan.
+    * The packed composite is the one FastaFile caches, shared with the
+    * display; its contigs lie end to end, and _contigs keeps seeds and
+    * alignments from running from one into the next. It is always a
+    * packed copy on the heap, even when ref is memory mapped.
+    */
+   public void setReference( FastaFile ref )
+   {
+      _reference = ref;
+      _refDNA = _reference.getPackedComposite();
+      _contigs = _reference.getContigs();
+      _index = null;
+      prepareIndex();
+   }
+   //----------------------- setSeedLength( int ) --------------------
+   /**
+    * use contiguous seeds of length bases ( 1 - 31 )
+    */
+   public void setSeedLength( int length )
+   {
+      setSeedShape( KmerIndex.contiguous( length ));
+   }
+   //----------------------- setSeedShape( String ) --------------------
+   /**
+    * Use spaced seeds of the given shape, e.g. "11011011": a 1 is a base
+    * that must match and a 0 one that need not. Longer or heavier seeds
+    * find fewer, better hits; spaced seeds still hit near mismatches.
+    * The index is rebuilt before the next alignment.
+    */
+   public void setSeedShape( String shape )
+   {
+      KmerIndex.checkShape( shape );
+      if ( ! shape.equals( _seedShape ))
+      {
+         _seedShape = shape;
+         _index = null;
+      }
+   }
+   //----------------------- setMinimizerWindow( int ) --------------------
+   /**
+    * Index only the minimizer of every window seeds of the reference, and
+    * seed reads at their own minimizers, rather than index every seed;
+    * this takes much less memory for a large reference. 0 indexes every
+    * seed. The index is rebuilt before the next alignment.
+    */
+   public void setMinimizerWindow( int window )
+   {
+      window = Math.max( 0, window );
+      if ( window != _minimizerWindow )
+      {
+         _minimizerWindow = window;
+         _index = null;
+      }
+   }
+   //----------------------- setFMIndex( boolean ) --------------------
+   /**
+    * Use an FMIndex of the reference, which takes about 6 bits a base,
+    * rather than a hash table of its seeds; it takes precedence over a
+    * minimizer window. Seeds must be contiguous. The index is rebuilt
+    * before the next alignment.
+    */
+   public void setFMIndex( boolean use )
+   {
+      if ( use != _useFMIndex )
+      {
+         _useFMIndex = use;
+         _index = null;
+      }
+   }
+   //----------------------- setIndexFiles( boolean ) --------------------
+   /**
+    * If true ( the default ) an index is saved next to the reference file
+    * once it is built, and later loaded from there instead of rebuilt;
+    * see IndexFile.
+    */
+   public void setIndexFiles( boolean use )
+   {
+      _indexFiles = use;
+   }
+   //----------------------- setBothStrands( boolean ) --------------------
+   /**
+    * If true ( the default ) each read is also aligned as its reverse
+    * complement, for reads from the other strand of the reference, and
+    * the better of the two alignments is kept.
+    */
+   public void setBothStrands( boolean both )
+   {
+      if ( both != _bothStrands )
+      {
+         _bothStrands = both;
+         _index = null;       // canonical seeds are only for both strands
+      }
+   }
+   //----------------------- setSeedStride( int ) --------------------
+   /**
+    * take a seed every stride bases of the read; a smaller stride finds
+    * more hits at more cost
+    */
+   public void setSeedStride( int stride )
+   {
+      _seedStride = Math.max( 1, stride );
+   }
+   //----------------------- setReads( FastaFile ) --------------------
+   /**
+    * set the reads  
+    */
+   public void setReads( FastaFile reads )
+   {
+      _reads = reads;
+   }
+   //----------------------- setMates( FastaFile ) --------------------
+   /**
+    * Set the second reads of pairs, read i the mate of read i of the
+    * reads. Call after setReads().
+    */
+   public void setMates( FastaFile mates )
+   {
+      if ( _reads != null )
+         MatePairs.link( _reads, mates );
+   }
+   //----------------------- setInsertSize( int, int ) --------------------
+   /**
+    * Set the range of fragment lengths, from the start of one mate to the
+    * end of the other, of a proper pair. Once one read of a pair has
+    * aligned, its mate is searched for only within maxInsert of it.
+    */
+   public void setInsertSize( int minInsert, int maxInsert )
+   {
+      _minInsert = Math.max( 0, minInsert );
+      _maxInsert = Math.max( _minInsert, maxInsert );
+   }
+   //---------------------- setListener( AlignmentListener ) ----------------
+   /**
+    * set the listener that receives the alignment results
+    */
+   public void setListener( AlignmentListener listener )
+   {
+      _listener = listener;
+   }
+   //---------------------- setExtender( Extender ) ----------------
+   /**
+    * set the strategy that scores seed hits; UngappedExtender by default,
+    * BandedSWExtender to allow for insertions and deletions
+    */
+   public void setExtender( Extender extender )
+   {
+      _extender = extender;
+   }
+   //---------------------- setMaxDiagonals( int ) ----------------
+   /**
+    * Set how many diagonals are extended for each read: those supported
+    * by the most seed hits.
+    */
+   public void setMaxDiagonals( int max )
+   {
+      _maxDiagonals = Math.max( 1, max );
+   }
+   //---------------------- setSecondaryHits( int ) ----------------
+   /**
+    * Report up to n secondary alignments of each read: the next best
+    * places it aligns, as Alignment.getSecondaryAlignments(). They are
+    * not passed to the listener on their own. 0, the default, reports
+    * only the best alignment.
+    */
+   public void setSecondaryHits( int n )
+   {
+      _secondaryHits = Math.max( 0, n );
+   }
+   //---------------------- getMetrics() ----------------
+   /**
+    * the counts and stage timings of every alignment since the Aligner
+    * was made or the metrics were last reset
+    */
+   public AlignMetrics getMetrics()
+   {
+      return _metrics;
+   }
+   //---------------------- minimumPercentMatch( int  ) ----------------
+   /**
+    * Set the minimum score for doing alignment ( 50 - 98 )
+    */
+   public void minimumPercentMatch( int minScore )
+   {
+      _minPercentMatch = minScore;
+   }
+   //---------------------- setThreadCount( int  ) ----------------
+   /**
+    * Set the number of worker threads align() uses; 1 aligns on the
+    * calling thread.
+    */
+   public void setThreadCount( int threads )
+   {
+      _threadCount = Math.max( 1, threads );
+   }
+   //---------------------- align() -----------------------------------
+   /**
+    * align all the reads in _reads with the reference, then tell the 
+    * listener. This is the "normal" mode of execution, but it is hard
+    * to debug.
+    */
+   public void align()
+   {
+      if ( _reads == null )
+         return;
+      int unaligned = align( _reads.iterator() );
+      if ( _listener != null )
+         _listener.alignmentDone( unaligned );
+   }
+   //---------------------- align( Iterator<DNASequence> ) ---------------------
+   /**
+    * align every read the iterator returns and return the number that did
+    * not align. Reads are taken batchSize at a time, so a FastaReader can
+    * stream a file of any size through here in bounded memory. A read
+    * with a mate ( see MatePairs ) is aligned as a pair with it, and both
+    * are counted.
+    */
+   public int align( Iterator<DNASequence> reads )
+   {
+      prepareIndex();
+      ExecutorService pool = null;
+      if ( _threadCount > 1 )
+         pool = Executors.newFixedThreadPool( _threadCount );
+      ArrayList<DNASequence> batch = new ArrayList<DNASequence>( batchSize );
+      int unaligned = 0;
+      int total = 0;
+      try
+      {
+         while ( reads.hasNext() )
+         {
+            batch.clear();
+            long parseStart = System.nanoTime();
+            while ( reads.hasNext() && batch.size() < batchSize )
+            {
+               DNASequence seq = reads.next();
+               long parsed = System.nanoTime();
+               _metrics.readParsed( parsed - parseStart );
+               parseStart = parsed;
+               batch.add( seq );
+               total += seq.getMate() == null ? 1 : 2;
+            }
+            if ( pool == null )
+               unaligned += alignBatch( batch );
+            else
+               unaligned += alignBatch( batch, pool );
+         }
+      }
+      finally
+      {
+         if ( pool != null )
+            pool.shutdownNow();
+      }
+      _log.info( "Aligned " + total + " reads, " + unaligned + " did not align" );
+      return unaligned;
+   }
+   //---------------------- alignBatch( ArrayList<DNASequence> ) --------------
+   /**
+    * align a batch of reads on this thread
+    */
+   private int alignBatch( ArrayList<DNASequence> batch )
+   {
+      AlignContext context = _context.get();
+      int unaligned = 0;
+      for ( DNASequence seq: batch )
+         unaligned += reportRead( alignRead( seq, context ));
+      return unaligned;
+   }
+   //------------ alignBatch( ArrayList<DNASequence>, ExecutorService ) --------
+   /**
+    * Split the batch into chunks and find their alignments on the pool's
+    * workers. Each worker keeps all of its state in its own AlignContext,
+    * so the workers share nothing but the read-only reference and index.
+    * The results are reported on this thread in read order,
+    * so the outcome is the same as a sequential align().
+    */
+   private int alignBatch( final ArrayList<DNASequence> batch, 
+                           ExecutorService pool )
+   {
+      int nReads = 0;
+      for ( DNASequence seq: batch )
+         nReads += seq.getMate() == null ? 1 : 2;
+      int chunkSize = Math.max( 1, ( batch.size() + 4 * _threadCount - 1 ) 
+                                    / ( 4 * _threadCount ));
+      ArrayList<Future<Alignment[]>> chunks = new ArrayList<Future<Alignment[]>>();
+      for ( int first = 0; first < batch.size(); first += chunkSize )
+      {
+         final int from = first;
+         final int to = Math.min( batch.size(), first + chunkSize );
+         chunks.add( pool.submit( new Callable<Alignment[]>()
+         {
+            public Alignment[] call()
+            {
+               AlignContext context = _context.get();
+               Alignment[] results = new Alignment[ to - from ];
+               for ( int i = from; i < to; i++ )
+                  results[ i - from ] = alignRead( batch.get( i ), context );
+               return results;
+            }
+         } ));
+      }
+      
+      int unaligned = 0;
+      int read = 0;
+      try
+      {
+         for ( Future<Alignment[]> chunk: chunks )
+         {
+            for ( Alignment result: chunk.get() )
+            {
+               unaligned += reportRead( result );
+               read += result.getMate() == null ? 1 : 2;
+            }
+         }
+      }
+      catch ( InterruptedException ie )
+      {
+         Thread.currentThread().interrupt();
+      }
+      catch ( ExecutionException ee )
+      {
+         throw new RuntimeException( "Alignment failed", ee.getCause() );
+      }
+      return unaligned + ( nReads - read );
+   }
+   //---------------------- align( int ) -----------------------------------
+   /**
+    * align the single read specified by the parameter. This is useful for
+    * debugging; the framework will display that read in a pop up after return
+    * from here.
+    */
+   public boolean align( int read )
+   {
+      if ( _reads == null )
+         return false;
+      boolean success = true;
+      if ( read >= 0 && read < _reads.size() )
+      {
+         DNASequence seq = _reads.get( read );
+         //System.out.println( "align: " + seq.getId() );
+         prepareIndex();
+         Alignment result = alignRead( seq, _context.get() );
+         success = report( result );
+         if ( result.getMate() != null )
+            report( result.getMate() );
+      }
+      else
+      {
+         success = false;
+         System.err.println( "Invalid read index: " + read );
+      }
+      return success;
+   }
+   //---------------------- align( int, int ) -----------------------------------
+   /**
+    * align the set of reads from first to last inclusive. This is also useful
+    * for debugging; if you have a problem with reads in the middle, you can
+    * do everything up to the problem point in one call, then single step
+    * after that.
+    */
+   public int align( int first, int last )
+   {
+      if ( _reads == null )
+         return 0;
+      int unaligned = 0; 
+      for ( int i = first; i <= last; i++ )
+      {
+         if ( ! align( i ) )
+            unaligned++;
+      }
+      return unaligned;
+      //System.out.println( "Leaving align( " + first + ", " + last + " )" );
+   }
+   //------------------ findAlign( DNASequence, AlignContext ) ------------------
+   /**
+    * Implement a heuristic algorithm to find what hopefully is the closest 
+    * matching location for this sequence in the reference.
+    * If not successful, report failure to log; the result then has
+    * position -1 but still carries the best candidate found.
+    * The reverse complement is seeded into the same diagonal map, so the
+    * diagonals of both strands compete for the same _maxDiagonals
+    * extensions; the diagonal seen first wins a tie. With a canonical
+    * index one lookup of each seed finds both strands, and the reverse
+    * complement of the read is only made if a reverse diagonal is
+    * extended or a seed has to be scanned for; otherwise it is made and
+    * seeded separately, and forward diagonals are added first.
+    * All the working storage comes from context, so nothing is allocated
+    * but the result.
+    */
+   private Alignment findAlign( DNASequence seq, AlignContext context )
+   {
+     return findAlign(seq, context, Integer.MIN_VALUE, Integer.MAX_VALUE);
+   }
+   //------------ findAlign( DNASequence, AlignContext, int, int ) ---------------
+   /**
+    * findAlign, considering only alignments that start in the reference
+    * at or after windowStart and before windowEnd
+    */
+   private Alignment findAlign( DNASequence seq, AlignContext context,
+                                int windowStart, int windowEnd )
+   {
+     
+     long start = System.nanoTime();
+     int pos = -1;
+     PackedDNA str = seq.getPacked();
+     TopHits hits = context.hits;
+     hits.clear(Math.max(2, _secondaryHits + 1));  // 2 for the mapping quality
+     DiagonalMap diagonals = context.diagonals;
+     diagonals.clear();
+     context.fit( str, _maxDiagonals );
+     
+     // group the seed hits of both strands by diagonal
+     int[] seeds = context.seeds;
+     int nSeeds = _index.seedPositions( str, _seedStride, seeds );
+     int seedHits = 0;
+     if ( _bothStrands && _index.canonical() )
+     {
+        for ( int s = 0; s < nSeeds; s++ )
+           seedHits += addBothStrandHits( str, seeds[ s ], context,
+                                          windowStart, windowEnd );
+     }
+     else
+     {
+        for ( int s = 0; s < nSeeds; s++ )
+           seedHits += addSeedHits( str, seeds[ s ], false, diagonals,
+                                    windowStart, windowEnd );
+        if ( _bothStrands )
+        {
+           PackedDNA rev = context.reverse( str );
+           int[] revSeeds = context.reverseSeeds;
+           int nRevSeeds = _index.seedPositions( rev, _seedStride, revSeeds );
+           for ( int s = 0; s < nRevSeeds; s++ )
+              seedHits += addSeedHits( rev, revSeeds[ s ], true, diagonals,
+                                       windowStart, windowEnd );
+        }
+     }
+     long seeded = System.nanoTime();
+     
+     // extend only the diagonals with the most seeds
+     int[] top = context.top;
+     int candidates = diagonals.top(_maxDiagonals, top);
+     int earlyExits = 0;
+     for(int c = 0; c < candidates; c++)
+     {
+       int seqPos = diagonals.readPos(top[c]);
+       int refPos = diagonals.diagonal(top[c]) + seqPos;
+       boolean reverse = diagonals.isReverse(top[c]);
+       int score = extendMatch( seq, reverse ? context.reverse( str ) : str,
+                                refPos, seqPos );
+       if(score > 0)
+         hits.offer(refPos, seqPos, score, reverse);
+       else
+         earlyExits++;
+     }
+     _metrics.searched(seedHits, seeded - start, candidates, earlyExits,
+                       System.nanoTime() - seeded);
+     
+     int found = hits.sort();
+     int bestScore = found > 0 ? hits.score(0) : 0;
+     int secondScore = found > 1 ? hits.score(1) : 0;
+     if(bestScore <= 0 || bestScore < _minPercentMatch)
+     {
+       if(_log.isEnabled(AlignLog.DEBUG))
+         _log.debug(seq.getHeader() + ": Is Not Aligned, best of " + found + 
+                    " score is: " + bestScore);
+     } 
+     else
+     {
+       pos = alignStart(hits, 0);
+       if(_log.isEnabled(AlignLog.DEBUG))
+         _log.debug(seq.getHeader() + ": new Align: " + pos + 
+                    ( hits.isReverse(0) ? " reverse" : "" ) + " score is: " + 
+                    bestScore + " next best: " + secondScore);
+     }
+     if(found == 0)
+       return new Alignment(seq, -1, 0, -1, -1, false);
+     Alignment result = makeAlignment(seq, pos, hits, 0);
+     if(pos < 0)
+       return result;
+     result.setMappingQuality(Math.min(maxMappingQuality, 
+                              (bestScore - secondScore) * mappingQualityPerPercent));
+     
+     // the runners up that are good enough to have aligned on their own
+     int nSecondary = 0;
+     while(nSecondary < _secondaryHits && nSecondary + 1 < found
+           && hits.score(nSecondary + 1) >= _minPercentMatch)
+       nSecondary++;
+     if(nSecondary > 0)
+     {
+       Alignment[] secondary = new Alignment[nSecondary];
+       for(int i = 0; i < nSecondary; i++)
+       {
+         secondary[i] = makeAlignment(seq, alignStart(hits, i + 1), hits, i + 1);
+         secondary[i].setSecondary();
+       }
+       result.setSecondaryAlignments(secondary);
+     }
+     return result;
+   }
+   //------------ alignStart( TopHits, int ) ---------------------------------
+   /**
+    * the start in the reference of hit h of hits. The extenders stop at
+    * the edge of the contig, so a read that hangs off the start of its
+    * contig still aligns; it is then placed at the contig start rather
+    * than before it.
+    */
+   private int alignStart( TopHits hits, int h )
+   {
+      return Math.max( hits.start( h ), _contigs.start( _contigs.find( hits.refPos( h ))));
+   }
+   //------------ makeAlignment( DNASequence, int, TopHits, int ) --------------
+   /**
+    * the Alignment of seq at position pos, from hit h of hits
+    */
+   private Alignment makeAlignment( DNASequence seq, int pos, TopHits hits, int h )
+   {
+      Alignment result = new Alignment( seq, pos, hits.score( h ), hits.refPos( h ),
+                                        hits.readPos( h ), hits.isReverse( h ));
+      int contig = _contigs.find( hits.refPos( h ));
+      result.setContig( _contigs.name( contig ), _contigs.start( contig ));
+      return result;
+   }
+   
+   
+   //---------- addSeedHits( PackedDNA, int, boolean, DiagonalMap, int, int ) -----
+   /**
+    * add the hits of the seed at read[ seqPos ] to diagonals; read is the
+    * reverse complement if reverse is true. Only diagonals from
+    * windowStart up to windowEnd are added; if the index keeps the hits
+    * of a seed in position order, the window is found by binary search.
+    * A hit that runs from one contig into the next is not a real match
+    * and is dropped. Return the number of hits added.
+    */
+   private int addSeedHits( PackedDNA read, int seqPos, boolean reverse,
+                             DiagonalMap diagonals, int windowStart, int windowEnd )
+   {
+      long hits = _index.findHits( read, seqPos );
+      if ( hits == SeedIndex.INVALID )
+         return scanSeed( read, seqPos, reverse, diagonals, windowStart, windowEnd );
+      if ( hits == SeedIndex.NOT_FOUND )
+         return 0;
+      int h = (int) ( hits >>> 32 );
+      int end = (int) hits;
+      boolean sorted = _index.sortedHits();
+      if ( sorted && windowStart > Integer.MIN_VALUE )
+      {
+         int hi = end;
+         while ( h < hi )
+         {
+            int mid = ( h + hi ) >>> 1;
+            if ( _index.hitAt( mid ) - seqPos < windowStart )
+               h = mid + 1;
+            else
+               hi = mid;
+         }
+      }
+      int seedLength = _index.kmerLength();
+      int added = 0;
+      for ( ; h < end; h++ )
+      {
+         int hit = _index.hitAt( h );
+         int diagonal = hit - seqPos;
+         if ( diagonal >= windowEnd && sorted )
+            break;
+         if ( diagonal >= windowStart && diagonal < windowEnd
+              && ! _contigs.spans( hit, seedLength ))
+         {
+            diagonals.add( diagonal, seqPos, reverse );
+            added++;
+         }
+      }
+      return added;
+   }
+   //------- addBothStrandHits( PackedDNA, int, AlignContext, int, int ) --------
+   /**
+    * addSeedHits for a canonical index: one lookup of the seed at
+    * read[ seqPos ] finds its hits on both strands. A hit of the seed's
+    * reverse complement is a hit of the read's reverse complement at
+    * revPos, the same bases counted from its other end. Return the
+    * number of hits added.
+    */
+   private int addBothStrandHits( PackedDNA read, int seqPos, AlignContext context,
+                                  int windowStart, int windowEnd )
+   {
+      DiagonalMap diagonals = context.diagonals;
+      int seedLength = _index.kmerLength();
+      int revPos = read.length() - seedLength - seqPos;
+      long hits = _index.findHits( read, seqPos );
+      if ( hits == SeedIndex.INVALID )
+         return scanSeed( read, seqPos, false, diagonals, windowStart, windowEnd )
+                + scanSeed( context.reverse( read ), revPos, true, diagonals,
+                            windowStart, windowEnd );
+      if ( hits == SeedIndex.NOT_FOUND )
+         return 0;
+      int h = (int) ( hits >>> 32 );
+      int end = (int) hits;
+      int strand = _index.seedStrand( read, seqPos );
+
+      // a hit's diagonals lie between hit - maxPos and hit - minPos
+      int minPos = Math.min( seqPos, revPos );
+      int maxPos = Math.max( seqPos, revPos );
+      boolean sorted = _index.sortedHits();
+      if ( sorted && windowStart > Integer.MIN_VALUE )
+      {
+         int hi = end;
+         while ( h < hi )
+         {
+            int mid = ( h + hi ) >>> 1;
+            if ( _index.hitAt( mid ) - minPos < windowStart )
+               h = mid + 1;
+            else
+               hi = mid;
+         }
+      }
+      int added = 0;
+      for ( ; h < end; h++ )
+      {
+         int hit = _index.hitAt( h );
+         if ( hit - maxPos >= windowEnd && sorted )
+            break;
+         if ( _contigs.spans( hit, seedLength ))
+            continue;
+         boolean same = _index.hitStrand( h ) == strand;
+         if ( same || strand == SeedIndex.BOTH )
+            added += addHit( diagonals, hit - seqPos, seqPos, false,
+                             windowStart, windowEnd );
+         if ( ! same || strand == SeedIndex.BOTH )
+            added += addHit( diagonals, hit - revPos, revPos, true,
+                             windowStart, windowEnd );
+      }
+      return added;
+   }
+   //------- addHit( DiagonalMap, int, int, boolean, int, int ) -------
+   /**
+    * add one seed hit to diagonals if its diagonal is in the window;
+    * return 1 if it was added, else 0
+    */
+   private static int addHit( DiagonalMap diagonals, int diagonal, int seqPos,
+                              boolean reverse, int windowStart, int windowEnd )
+   {
+      if ( diagonal < windowStart || diagonal >= windowEnd )
+         return 0;
+      diagonals.add( diagonal, seqPos, reverse );
+      return 1;
+   }
+   //------- scanSeed( PackedDNA, int, boolean, DiagonalMap, int, int ) -------
+   /**
+    * Seeds with N, X or gap characters are not in the index; find them by
+    * a literal scan of the reference, within the window, instead, and add
+    * the hits to diagonals. A seed with no ACGT base at all says nothing
+    * about where the read belongs, so it is skipped. Return the number of
+    * hits added.
+    */
+   private int scanSeed( PackedDNA read, int seqPos, boolean reverse,
+                         DiagonalMap diagonals, int windowStart, int windowEnd )
+   {
+      int seedLength = _index.kmerLength();
+      long seedMask = _index.seedMask();
+      if ( ( ~PackedDNA.spread( read.specialBits( seqPos )) & seedMask ) == 0 )
+         return 0;
+      int added = 0;
+      int first = (int) Math.max( 0, (long) windowStart + seqPos );
+      int last = (int) Math.min( _refDNA.length() - seedLength,
+                                 (long) windowEnd - 1 + seqPos );
+      for ( int refPos = first; refPos <= last; refPos++ )
+      {
+         if ( ( _refDNA.mismatchMask( refPos, read, seqPos ) & seedMask ) == 0
+              && ! _contigs.spans( refPos, seedLength ))
+         {
+            diagonals.add( refPos - seqPos, seqPos, reverse );
+            added++;
+            refPos += seedLength - 1;
+         }
+      }
+      return added;
+   }
+   //------------------------ alignRead( DNASequence, AlignContext ) ----------
+   /**
+    * the alignment of seq, and through its getMate() that of seq's mate if
+    * it has one
+    */
+   private Alignment alignRead( DNASequence seq, AlignContext context )
+   {
+      if ( seq.getMate() == null )
+         return findAlign( seq, context );
+      return alignPair( seq, seq.getMate(), context );
+   }
+   //------------------------ alignPair( DNASequence, DNASequence ) -----------
+   /**
+    * Align the reads of a pair. The first is searched for in the whole
+    * reference; once one read has aligned, its mate is searched for only
+    * in the window in which the pair could be proper, which is much
+    * cheaper and may find a mate that a whole-reference search would
+    * crowd out with repeats. A mate not found in the window is searched
+    * for everywhere. A proper pair must also lie in one contig.
+    */
+   private Alignment alignPair( DNASequence first, DNASequence second,
+                                AlignContext context )
+   {
+      Alignment a = findAlign( first, context );
+      Alignment b;
+      if ( a.isAligned() )
+      {
+         b = findMate( second, a, context );
+         if ( ! b.isAligned() )
+            b = findAlign( second, context );
+      }
+      else
+      {
+         b = findAlign( second, context );
+         if ( b.isAligned() )
+         {
+            Alignment rescued = findMate( first, b, context );
+            if ( rescued.isAligned() )
+               a = rescued;
+         }
+      }
+      boolean proper = a.isAligned() && b.isAligned()
+                       && a.isReverse() != b.isReverse()
+                       && a.getContigStart() == b.getContigStart();
+      if ( proper )
+      {
+         int start = Math.min( a.getPosition(), b.getPosition() );
+         int end = Math.max( a.getPosition() + first.length(),
+                             b.getPosition() + second.length() );
+         proper = end - start >= _minInsert && end - start <= _maxInsert;
+      }
+      a.setMate( b, proper );
+      b.setMate( a, proper );
+      for ( Alignment s: a.getSecondaryAlignments() )
+         s.setMate( b, false );
+      for ( Alignment s: b.getSecondaryAlignments() )
+         s.setMate( a, false );
+      return a;
+   }
+   //------------------ findMate( DNASequence, Alignment, AlignContext ) -------
+   /**
+    * align mate within _maxInsert of the aligned read of its pair, and
+    * not beyond the ends of that read's contig
+    */
+   private Alignment findMate( DNASequence mate, Alignment aligned,
+                               AlignContext context )
+   {
+      int start = aligned.getPosition();
+      int end = start + aligned.getRead().length();
+      int contigStart = aligned.getContigStart();
+      int contigEnd = contigStart + _contigs.length( _contigs.find( contigStart ));
+      return findAlign( mate, context,
+                        Math.max( end - _maxInsert, contigStart - mate.length() + 1 ),
+                        Math.min( start + _maxInsert - mate.length() + 1, contigEnd ));
+   }
+   //----------------------- extendMatch( DNASequence, int, int) ----------------
+   /**
+    * score the read against the reference around the seed hit at 
+    * ref[ refPos ], read[ seqPos ] with the current Extender
+    */
+   public int extendMatch( DNASequence s, int refPos, int seqPos )
+   {
+      return extendMatch( s, s.getPacked(), refPos, seqPos );
+   }
+   //----------------------- extendMatch( DNASequence, PackedDNA, int, int) -------
+   /**
+    * score read, the bases of s or their reverse complement, against the
+    * contig of the seed hit at ref[ refPos ], read[ seqPos ]
+    */
+   private int extendMatch( DNASequence s, PackedDNA read, int refPos, int seqPos )
+   {
+      int contig = _contigs.find( refPos );
+      int score = _extender.extend( _refDNA, _contigs.start( contig ),
+                                    _contigs.end( contig ), read, refPos, seqPos );
+      if ( score == 0 && _log.isEnabled( AlignLog.DEBUG ))
+         _log.debug( "Early Termination is : " + s.getHeader() + " at " + refPos );
+      return score;
+   }
+   //----------------------- prepareIndex() ------------------------------
+   /**
+    * build the seed index if the reference or seeding has changed, or load
+    * it from its index file if one was saved for the same reference and
+    * settings
+    */
+   private void prepareIndex()
+   {
+      if ( _index != null || _refDNA == null )
+         return;
+      if ( _useFMIndex && _seedShape.indexOf( '0' ) >= 0 )
+         throw new IllegalArgumentException( "FMIndex needs contiguous seeds, not "
+                                             + _seedShape );
+      // a k-mer index of both strands keys each seed and its reverse
+      // complement together, so one lookup serves both
+      boolean canonical = _bothStrands && ! _useFMIndex && _minimizerWindow == 0
+                          && KmerIndex.symmetric( _seedShape );
+      String settings;
+      if ( _useFMIndex )
+         settings = "fm" + _seedShape.length();
+      else if ( _minimizerWindow > 0 )
+         settings = "min" + _minimizerWindow + "-" + _seedShape;
+      else if ( canonical )
+         settings = "kmer-rc-" + _seedShape;
+      else
+         settings = "kmer-" + _seedShape;
+      String file = null;
+      if ( _indexFiles && _reference.getFileName() != null )
+      {
+         file = IndexFile.fileName( _reference.getFileName(), settings );
+         _index = IndexFile.load( file, settings, _refDNA );
+         if ( _index != null )
+         {
+            _log.info( "Loaded index " + file );
+            return;
+         }
+      }
+      if ( _useFMIndex )
+         _index = new FMIndex( _refDNA, _seedShape.length() );
+      else if ( _minimizerWindow > 0 )
+         _index = new MinimizerIndex( _refDNA, _seedShape, _minimizerWindow );
+      else
+         _index = new KmerIndex( _refDNA, _seedShape, canonical );
+      if ( file != null )
+      {
+         IndexFile.save( file, settings, _refDNA, _index );
+         _log.info( "Saved index " + file );
+      }
+   }
+   //----------------------- reportRead( Alignment ) ----------------------------
+   /**
+    * report the alignment of a read and, if it has one, of its mate;
+    * return how many of them did not align
+    */
+   private int reportRead( Alignment result )
+   {
+      int unaligned = report( result ) ? 0 : 1;
+      if ( result.getMate() != null && ! report( result.getMate() ))
+         unaligned++;
+      return unaligned;
+   }
+   //----------------------- report( Alignment ) ------------------------------
+   /**
+    * record an alignment in its DNASequence and pass the result to the
+    * listener; return whether the read aligned
+    */
+   private boolean report( Alignment result )
+   {
+      long start = System.nanoTime();
+      if ( result.isAligned() )
+      {
+         result.getRead().setReferencePosition( result.getPosition() );
+         result.getRead().setReverse( result.isReverse() );
+      }
+      if ( _listener != null )
+      {
+         if ( result.isAligned() )
+            _listener.readAligned( result );
+         else
+            _listener.readNotAligned( result );
+      }
+      _metrics.reported( result.isAligned(), System.nanoTime() - start );
+      return result.isAligned();
+   }
+   //---------------------------- close() -------------------------------
+   /**
+    * write out and close the log
+    */
+   public void close()
+   {
+      _log.close();
+   }
+   //+++++++++++++++++++++++++ private inner class +++++++++++++++++++++++++++
+   //------------------ class AlignContext --------------------------------------
+   /**
+    * The working storage of one thread's alignments: the diagonal map,
+    * the top hits, the reverse complement of the read and the seed and
+    * candidate arrays. It is allocated once per thread and only grows, so
+    * once it has seen the longest read, aligning a read allocates nothing
+    * but its Alignment.
+    */
+   private static class AlignContext
+   {
+      DiagonalMap  diagonals = new DiagonalMap();
+      TopHits      hits = new TopHits();
+      PackedDNA    reverse = new PackedDNA( 256 );
+      PackedDNA    reversed = null;   // the read reverse holds, if any
+      int[]        seeds = new int[ 256 ];
+      int[]        reverseSeeds = new int[ 256 ];
+      int[]        top = new int[ 0 ];
+
+      //------------------ fit( PackedDNA, int ) ------------------------------
+      /**
+       * start on read: make room for its seeds and for candidates
+       * diagonals, and forget the last read's reverse complement
+       */
+      void fit( PackedDNA read, int candidates )
+      {
+         int length = read.length();
+         reversed = null;
+         if ( seeds.length < length )
+         {
+            seeds = new int[ length ];
+            reverseSeeds = new int[ length ];
+         }
+         if ( top.length < candidates )
+            top = new int[ candidates ];
+      }
+      //------------------ reverse( PackedDNA ) ------------------------------
+      /**
+       * the reverse complement of read, made the first time it is asked for
+       */
+      PackedDNA reverse( PackedDNA read )
+      {
+         if ( reversed != read )
+         {
+            read.reverseComplement( reverse );
+            reversed = read;
+         }
+         return reverse;
+      }
+   }
+}
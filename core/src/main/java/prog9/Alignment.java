@@ -0,0 +1,205 @@
+/**
+ * Alignment -- the result of aligning one read: where it best fits in the
+ *       reference, how well, and the seed hit the alignment grew from.
+ *       A read that did not align has position -1; its score and seed are
+ *       those of the best candidate that was found, if any.
+ *
+ *       Positions are in the composite of all the reference's contigs;
+ *       getContig() and getContigPosition() give the contig of the seed
+ *       and the read's start within it. A read that hangs off the start
+ *       of its contig is placed at the contig start, position 0.
+ *
+ *       The mapping quality, 0 to 60, says how far the best alignment
+ *       outscored the next best place the read fits; 0 means the read fits
+ *       two places equally well. The Aligner may also report those next
+ *       best places as secondary alignments of the best one.
+ *
+ *       The results for the two reads of a pair are linked to each other,
+ *       and say whether they form a proper pair: both aligned, on opposite
+ *       strands, with an insert size the Aligner expects.
+ */
+package prog9;
+
+public class Alignment
+{
+   //------------------------- class variables ---------------------------
+   private final static Alignment[] NONE = new Alignment[ 0 ];
+
+   //----------------------- Instance variables ---------------------------
+   private DNASequence   read;
+   private int           position;    // start of the read in the reference
+   private int           score;       // percent of read bases that match
+   private int           seedRef;     // seed position in the reference
+   private int           seedRead;    // seed position in the read
+   private boolean       reverse;     // aligned as the reverse complement
+   private Alignment     mate = null; // result for the read's mate
+   private boolean       properPair = false;
+   private String        contig = null; // contig of the seed hit
+   private int           contigStart = -1; // its start in the composite
+   private int           mappingQuality = 0;
+   private boolean       secondary = false;
+   private Alignment[]   secondaries = NONE;  // of a best alignment
+
+   //----------------------------- constructor ----------------------------
+   public Alignment( DNASequence read, int position, int score,
+                     int seedRef, int seedRead, boolean reverse )
+   {
+      this.read = read;
+      this.position = position;
+      this.score = score;
+      this.seedRef = seedRef;
+      this.seedRead = seedRead;
+      this.reverse = reverse;
+   }
+   //----------------------------- getRead() -------------------------------
+   public DNASequence getRead()
+   {
+      return read;
+   }
+   //----------------------------- isAligned() -------------------------------
+   public boolean isAligned()
+   {
+      return position >= 0;
+   }
+   //----------------------------- getPosition() -------------------------------
+   /**
+    * position of the start of the read in the reference, or -1
+    */
+   public int getPosition()
+   {
+      return position;
+   }
+   //----------------------------- setContig( String, int ) -----------------
+   /**
+    * record the contig the seed hit lies in, and where that contig starts
+    * in the composite
+    */
+   public void setContig( String name, int start )
+   {
+      contig = name;
+      contigStart = start;
+   }
+   //----------------------------- getContig() -------------------------------
+   /**
+    * name of the contig of the seed hit, or null if there was no hit
+    */
+   public String getContig()
+   {
+      return contig;
+   }
+   //----------------------------- getContigStart() -----------------------------
+   /**
+    * composite position of the start of the contig, or -1
+    */
+   public int getContigStart()
+   {
+      return contigStart;
+   }
+   //----------------------------- getContigPosition() --------------------------
+   /**
+    * position of the start of the read in its contig; only meaningful if
+    * the read aligned
+    */
+   public int getContigPosition()
+   {
+      return position - contigStart;
+   }
+   //----------------------------- getScore() -------------------------------
+   public int getScore()
+   {
+      return score;
+   }
+   //----------------------------- getSeedRef() -------------------------------
+   /**
+    * position of the seed in the reference, or -1 if there was no hit
+    */
+   public int getSeedRef()
+   {
+      return seedRef;
+   }
+   //----------------------------- getSeedRead() -------------------------------
+   /**
+    * position of the seed in the read, or in its reverse complement if
+    * isReverse(); -1 if there was no hit
+    */
+   public int getSeedRead()
+   {
+      return seedRead;
+   }
+   //----------------------------- isReverse() -------------------------------
+   /**
+    * true if the reverse complement of the read is what aligned
+    */
+   public boolean isReverse()
+   {
+      return reverse;
+   }
+   //----------------------------- setMappingQuality( int ) ------------------
+   public void setMappingQuality( int q )
+   {
+      mappingQuality = q;
+   }
+   //----------------------------- getMappingQuality() -------------------------
+   /**
+    * confidence that the read belongs here and not at the next best place,
+    * 0 to 60; 0 for unaligned and secondary alignments
+    */
+   public int getMappingQuality()
+   {
+      return mappingQuality;
+   }
+   //----------------------------- setSecondary() -------------------------------
+   /**
+    * mark this as a secondary alignment: not the best place for the read
+    */
+   public void setSecondary()
+   {
+      secondary = true;
+   }
+   //----------------------------- isSecondary() -------------------------------
+   public boolean isSecondary()
+   {
+      return secondary;
+   }
+   //----------------------------- setSecondaryAlignments( Alignment[] ) ----------
+   public void setSecondaryAlignments( Alignment[] others )
+   {
+      secondaries = others;
+   }
+   //----------------------------- getSecondaryAlignments() ----------------------
+   /**
+    * the secondary alignments of the read, best first; none unless the
+    * Aligner was asked for them
+    */
+   public Alignment[] getSecondaryAlignments()
+   {
+      return secondaries;
+   }
+   //----------------------------- setMate( Alignment, boolean ) ---------------
+   /**
+    * link this result to the result for the read's mate
+    */
+   public void setMate( Alignment m, boolean proper )
+   {
+      mate = m;
+      properPair = proper;
+   }
+   //----------------------------- getMate() -------------------------------
+   /**
+    * the result for the read's mate, or null if the read is unpaired
+    */
+   public Alignment getMate()
+   {
+      return mate;
+   }
+   //----------------------------- isProperPair() -------------------------------
+   public boolean isProperPair()
+   {
+      return properPair;
+   }
+   //----------------------------- toString() -------------------------------
+   public String toString()
+   {
+      return read.getId() + " @" + position + " score " + score;
+   }
+}
@@ -0,0 +1,31 @@
+/**
+ * AlignmentListener -- receives the results of an Aligner. The Aligner
+ *       itself knows nothing about how results are shown or saved, so it
+ *       can run without any user interface; the GUI registers a listener
+ *       that adds the aligned reads to the display.
+ *
+ *       The listener is always called on the thread that called align,
+ *       in read order, even when the reads are aligned by worker threads.
+ */
+package prog9;
+
+public interface AlignmentListener
+{
+   //---------------------- readAligned( Alignment ) -------------------
+   /**
+    * the read aligned to the reference as described by result
+    */
+   public void readAligned( Alignment result );
+
+   //---------------------- readNotAligned( Alignment ) -------------------
+   /**
+    * the read did not align; result has the best candidate, if any
+    */
+   public void readNotAligned( Alignment result );
+
+   //---------------------- alignmentDone( int ) -------------------
+   /**
+    * align() has finished all the reads; unaligned did not align
+    */
+   public void alignmentDone( int unaligned );
+}
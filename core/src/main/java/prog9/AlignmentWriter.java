@@ -0,0 +1,167 @@
+/**
+ * AlignmentWriter -- an AlignmentListener that writes every result as one
+ *       tab separated line, in the spirit of SAM:
+ *
+ *         QNAME  FLAG  RNAME  POS  MAPQ  SCORE  SEED  STRAND  MPOS
+ *
+ *       QNAME is the read id; FLAG is 0, or 4 if the read did not align,
+ *       plus 16 if it aligned as its reverse complement; RNAME is the
+ *       contig the read aligned to; POS is 1-based within that contig,
+ *       and 0 for unaligned reads; MAPQ is the mapping quality; SCORE is
+ *       the percent match; SEED is refPos:readPos of the seed hit, with
+ *       refPos counted within the contig, or * if the read did not align;
+ *       STRAND is + or -, or * if the read did not align; MPOS is the POS
+ *       of the read's mate, as RNAME:POS if the mate is on another contig.
+ *       Fields that do not apply are *.
+ *
+ *       Secondary alignments of a read follow its line, with flag 256.
+ *
+ *       A read of a pair also has the SAM pair flags: 1, plus 2 for a
+ *       proper pair, 8 if the mate did not align, 32 if the mate aligned
+ *       as its reverse complement, and 64 or 128 for the first or second
+ *       read of the pair.
+ *
+ *       Output goes through one large buffer to a file channel, gzip
+ *       compressed if the file name ends in .gz, or to standard output
+ *       if the name is "-".
+ */
+package prog9;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.GZIPOutputStream;
+
+public class AlignmentWriter implements AlignmentListener, Closeable
+{
+   //------------------------- class variables ---------------------------------
+   private final static int    bufferSize = 1 << 20;
+   private final static int    FLAG_PAIRED = 1;
+   private final static int    FLAG_PROPER_PAIR = 2;
+   private final static int    FLAG_UNMAPPED = 4;
+   private final static int    FLAG_MATE_UNMAPPED = 8;
+   private final static int    FLAG_REVERSE = 16;
+   private final static int    FLAG_MATE_REVERSE = 32;
+   private final static int    FLAG_FIRST = 64;
+   private final static int    FLAG_SECOND = 128;
+   private final static int    FLAG_SECONDARY = 256;
+
+   //------------------------- instance variables ------------------------------
+   private Writer        _out;
+   private StringBuilder _line = new StringBuilder( 256 );
+
+   //---------------------- constructor ----------------------------------------
+   /**
+    * write to fileName ( "-" for standard output )
+    */
+   public AlignmentWriter( String fileName ) throws IOException
+   {
+      OutputStream stream;
+      if ( fileName.equals( "-" ))
+         stream = new FileOutputStream( FileDescriptor.out );
+      else
+         stream = Channels.newOutputStream( FileChannel.open( Paths.get( fileName ),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING ));
+      if ( fileName.endsWith( ".gz" ))
+         stream = new GZIPOutputStream( stream, bufferSize );
+      _out = new BufferedWriter( new OutputStreamWriter( stream,
+                                    StandardCharsets.US_ASCII ), bufferSize );
+      _out.write( "@CO\tQNAME\tFLAG\tRNAME\tPOS\tMAPQ\tSCORE\tSEED\tSTRAND\tMPOS\n" );
+   }
+   //---------------------- readAligned( Alignment ) -------------------------
+   public void readAligned( Alignment aln )
+   {
+      write( aln );
+   }
+   //---------------------- readNotAligned( Alignment ) -------------------------
+   public void readNotAligned( Alignment aln )
+   {
+      write( aln );
+   }
+   //---------------------- alignmentDone( int ) -------------------------
+   public void alignmentDone( int unaligned )
+   {
+      try
+      {
+         _out.flush();
+      }
+      catch ( IOException ioe )
+      {
+         throw new UncheckedIOException( ioe );
+      }
+   }
+   //---------------------- close() -------------------------
+   public void close() throws IOException
+   {
+      _out.close();
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //---------------------- write( Alignment ) -------------------------
+   /**
+    * write the line for aln, then those of its secondary alignments
+    */
+   private void write( Alignment aln )
+   {
+      writeLine( aln );
+      for ( Alignment s: aln.getSecondaryAlignments() )
+         writeLine( s );
+   }
+   //---------------------- writeLine( Alignment ) -------------------------
+   private void writeLine( Alignment aln )
+   {
+      boolean aligned = aln.isAligned();
+      int flag = aligned ? 0 : FLAG_UNMAPPED;
+      if ( aln.isSecondary() )
+         flag |= FLAG_SECONDARY;
+      if ( aligned && aln.isReverse() )
+         flag |= FLAG_REVERSE;
+      Alignment mate = aln.getMate();
+      if ( mate != null )
+      {
+         flag |= FLAG_PAIRED;
+         flag |= aln.getRead().isFirstMate() ? FLAG_FIRST : FLAG_SECOND;
+         if ( aln.isProperPair() )
+            flag |= FLAG_PROPER_PAIR;
+         if ( ! mate.isAligned() )
+            flag |= FLAG_MATE_UNMAPPED;
+         else if ( mate.isReverse() )
+            flag |= FLAG_MATE_REVERSE;
+      }
+
+      _line.setLength( 0 );
+      _line.append( aln.getRead().getId() ).append( '\t' );
+      _line.append( flag ).append( '\t' );
+      _line.append( aligned ? aln.getContig() : "*" ).append( '\t' );
+      _line.append( aligned ? aln.getContigPosition() + 1 : 0 ).append( '\t' );
+      _line.append( aln.getMappingQuality() ).append( '\t' );
+      _line.append( aln.getScore() ).append( '\t' );
+      if ( aligned && aln.getSeedRef() >= 0 )
+         _line.append( aln.getSeedRef() - aln.getContigStart() )
+              .append( ':' ).append( aln.getSeedRead() );
+      else
+         _line.append( '*' );
+      _line.append( '\t' );
+      _line.append( aligned ? ( aln.isReverse() ? '-' : '+' ) : '*' );
+      _line.append( '\t' );
+      if ( mate != null && mate.isAligned() )
+      {
+         if ( ! aligned || mate.getContigStart() != aln.getContigStart() )
+            _line.append( mate.getContig() ).append( ':' );
+         _line.append( mate.getContigPosition() + 1 );
+      }
+      else
+         _line.append( '*' );
+      _line.append( '\n' );
+      try
+      {
+         _out.append( _line );
+      }
+      catch ( IOException ioe )
+      {
+         throw new UncheckedIOException( ioe );
+      }
+   }
+}
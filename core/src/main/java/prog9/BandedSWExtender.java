@@ -0,0 +1,123 @@
+/**
+ * BandedSWExtender -- scores a seed hit with a banded Smith-Waterman
+ *       alignment with affine gap costs, so reads with small insertions or
+ *       deletions still score well.
+ *
+ *       The whole read is aligned against the reference (Gotoh's three
+ *       state recurrence), but only cells within band bases of the seed's
+ *       diagonal are computed, so the cost is about len * ( 2 * band + 1 ).
+ *       The band is held in diagonal coordinates: cell k of a row is k - band
+ *       bases right of the diagonal, so the three predecessors of a cell are
+ *       cell k of the previous row, cell k + 1 of the previous row and
+ *       cell k - 1 of the same row.
+ *
+ *       A match scores 1 and a mismatch 0, so without gaps the score is the
+ *       number of matching bases, just as for UngappedExtender, and both
+ *       compare with the same minimum percent match. A gap of n bases
+ *       costs gapOpen + n * gapExtend.
+ *
+ *       The alignment is confined to the seed's contig: cells outside it
+ *       are NEG, as are cells past either end of the composite.
+ *
+ *       The rows are int arrays that each thread allocates once and reuses.
+ *
+ *       Key public methods:
+ *           BandedSWExtender( int band ) -- allow gaps of up to band bases
+ *           int extend( PackedDNA ref, int refStart, int refEnd,
+ *                       PackedDNA read, int refPos, int readPos )
+ */
+package prog9;
+
+public class BandedSWExtender implements Extender
+{
+   //------------------------- class variables ---------------------------------
+   public final static int    defaultBand = 8;
+
+   private final static int   MATCH      = 1;
+   private final static int   MISMATCH   = 0;
+   private final static int   GAP_OPEN   = 2;
+   private final static int   GAP_EXTEND = 1;
+   private final static int   NEG        = Integer.MIN_VALUE / 2;  // no path
+
+   //------------------------- instance variables ------------------------------
+   private int                  _band;
+   private ThreadLocal<int[][]> _rows;   // H and F, previous and current row
+
+   //---------------------- constructors ----------------------------------------
+   public BandedSWExtender()
+   {
+      this( defaultBand );
+   }
+   public BandedSWExtender( int band )
+   {
+      _band = Math.max( 1, band );
+      final int width = 2 * _band + 3;   // the band plus a NEG cell each side
+      _rows = new ThreadLocal<int[][]>()
+      {
+         protected int[][] initialValue()
+         {
+            int[][] rows = new int[ 4 ][ width ];
+            for ( int[] row: rows )
+               row[ 0 ] = row[ width - 1 ] = NEG;
+            return rows;
+         }
+      };
+   }
+   //---------------------- extend( PackedDNA, int, int, PackedDNA, int, int ) --
+   public int extend( PackedDNA ref, int refStart, int refEnd,
+                      PackedDNA read, int refPos, int readPos )
+   {
+      int[][] rows = _rows.get();
+      int[] prevH = rows[ 0 ];   // best score ending at the cell
+      int[] prevF = rows[ 1 ];   // best score ending in a gap in the reference
+      int[] curH = rows[ 2 ];
+      int[] curF = rows[ 3 ];
+      int band = 2 * _band + 1;
+      int diagonal = refPos - readPos - _band - 1;  // j of cell 0 in row 0
+      int len = read.length();
+
+      // row 0: nothing of the read is used yet, and the alignment
+      // may start anywhere in the band
+      for ( int k = 1; k <= band; k++ )
+      {
+         int j = diagonal + k;
+         prevH[ k ] = j >= refStart && j <= refEnd ? 0 : NEG;
+         prevF[ k ] = NEG;
+      }
+
+      // row i: read[ 0 .. i ) aligned, cell k ends at ref[ j - 1 ]
+      for ( int i = 1; i <= len; i++ )
+      {
+         int e = NEG;   // best score ending in a gap in the read
+         int rowBest = NEG;
+         for ( int k = 1; k <= band; k++ )
+         {
+            int j = i + diagonal + k;
+            if ( j < refStart || j > refEnd )
+            {
+               curH[ k ] = curF[ k ] = e = NEG;
+               continue;
+            }
+            int h = j == refStart ? NEG : prevH[ k ] 
+                  + ( ref.matches( j - 1, read, i - 1 ) ? MATCH : MISMATCH );
+            int f = Math.max( prevH[ k + 1 ] - GAP_OPEN - GAP_EXTEND,
+                              prevF[ k + 1 ] - GAP_EXTEND );
+            e = Math.max( curH[ k - 1 ] - GAP_OPEN - GAP_EXTEND, e - GAP_EXTEND );
+            h = Math.max( h, Math.max( e, f ));
+            curH[ k ] = h;
+            curF[ k ] = f;
+            rowBest = Math.max( rowBest, h );
+         }
+         if ( rowBest + ( len - i ) * MATCH < len / 3 )  // as UngappedExtender
+            return 0;
+
+         int[] swap = prevH; prevH = curH; curH = swap;
+         swap = prevF; prevF = curF; curF = swap;
+      }
+
+      int best = NEG;
+      for ( int k = 1; k <= band; k++ )
+         best = Math.max( best, prevH[ k ] );
+      return best <= 0 ? 0 : best * 100 / len;
+   }
+}
@@ -0,0 +1,181 @@
+/**
+ * BatchAlign -- headless entry point: aligns a reads file against a
+ *       reference and writes one SAM-like line per read with an
+ *       AlignmentWriter. The number of reads that did not align goes to
+ *       standard error.
+ *
+ *       Only core classes are used, so no AWT or Swing class is ever
+ *       loaded and no display is needed.
+ *
+ *       usage: java prog9.BatchAlign [ -t threads ] [ -o outFile ] [ -log logFile ]
+ *                              [ -v ] [ -gap band ] [ -diag n ] [ -k length ]
+ *                              [ -shape seedShape ] [ -stride n ] [ -w window ]
+ *                              [ -fm ] [ -noidx ] [ -fwd ] [ -interleaved ]
+ *                              [ -insert min max ] [ -secondary n ]
+ *                              [ -metrics jsonFile ] reference reads [ mates ]
+ *           threads defaults to the number of processors; output goes to
+ *           standard output if no file is given, and is gzip compressed
+ *           if the file name ends in .gz. The log goes to alignmentLog.txt
+ *           by default; -v adds a line for every read to it. -gap scores
+ *           hits with a banded Smith-Waterman that allows gaps of up to
+ *           band bases, rather than base for base. -diag sets how many
+ *           diagonals, those with the most seed hits, are scored per read.
+ *           Seeds are 8 bases, one every 8 bases of the read, unless -k
+ *           sets the length or -shape a spaced seed such as 11011011;
+ *           -stride sets the distance between seeds. -w indexes only the
+ *           minimizer of each window of seeds, for large references; -fm
+ *           uses an FM-index of the reference instead. The index is saved
+ *           next to the reference and reloaded on later runs unless
+ *           -noidx is given. Reads are aligned on both strands; -fwd
+ *           tries only the forward strand.
+ *           Paired reads are given as a second file of mates, read i of
+ *           each file a pair, or with -interleaved as one file in which
+ *           each read is followed by its mate. A pair is proper if its
+ *           fragment is from min to max bases long ( 0 to 1000 by default ),
+ *           and the second read is searched for within max of the first.
+ *           -secondary reports up to n next best alignments of each read,
+ *           after its best one. -metrics writes the read counts, seed hit
+ *           and extension counts and the time taken by each stage of the
+ *           alignment ( see AlignMetrics ) to jsonFile.
+ */
+package prog9;
+
+import java.io.*;
+import java.util.Iterator;
+
+public class BatchAlign
+{
+   //------------------ main ------------------------------------------
+   public static void main( String[] args ) throws IOException
+   {
+      int threads = Runtime.getRuntime().availableProcessors();
+      String outFile = "-";
+      String logFile = "alignmentLog.txt";
+      int logLevel = AlignLog.INFO;
+      Extender extender = new UngappedExtender();
+      int maxDiagonals = 32;
+      String seedShape = null;
+      int stride = 0;
+      int window = 0;
+      boolean fm = false;
+      boolean indexFiles = true;
+      boolean bothStrands = true;
+      boolean interleaved = false;
+      int minInsert = 0;
+      int maxInsert = -1;
+      int secondary = 0;
+      String metricsFile = null;
+      int a = 0;
+      try
+      {
+         for ( ; a < args.length && args[ a ].startsWith( "-" ); a++ )
+         {
+            if ( args[ a ].equals( "-t" ))
+               threads = Integer.parseInt( args[ ++a ] );
+            else if ( args[ a ].equals( "-o" ))
+               outFile = args[ ++a ];
+            else if ( args[ a ].equals( "-log" ))
+               logFile = args[ ++a ];
+            else if ( args[ a ].equals( "-v" ))
+               logLevel = AlignLog.DEBUG;
+            else if ( args[ a ].equals( "-gap" ))
+               extender = new BandedSWExtender( Integer.parseInt( args[ ++a ] ));
+            else if ( args[ a ].equals( "-diag" ))
+               maxDiagonals = Integer.parseInt( args[ ++a ] );
+            else if ( args[ a ].equals( "-k" ))
+               seedShape = KmerIndex.contiguous( Integer.parseInt( args[ ++a ] ));
+            else if ( args[ a ].equals( "-shape" ))
+            {
+               seedShape = args[ ++a ];
+               KmerIndex.checkShape( seedShape );
+            }
+            else if ( args[ a ].equals( "-stride" ))
+               stride = Integer.parseInt( args[ ++a ] );
+            else if ( args[ a ].equals( "-w" ))
+               window = Integer.parseInt( args[ ++a ] );
+            else if ( args[ a ].equals( "-fm" ))
+               fm = true;
+            else if ( args[ a ].equals( "-noidx" ))
+               indexFiles = false;
+            else if ( args[ a ].equals( "-fwd" ))
+               bothStrands = false;
+            else if ( args[ a ].equals( "-interleaved" ))
+               interleaved = true;
+            else if ( args[ a ].equals( "-insert" ))
+            {
+               minInsert = Integer.parseInt( args[ ++a ] );
+               maxInsert = Integer.parseInt( args[ ++a ] );
+            }
+            else if ( args[ a ].equals( "-secondary" ))
+               secondary = Integer.parseInt( args[ ++a ] );
+            else if ( args[ a ].equals( "-metrics" ))
+               metricsFile = args[ ++a ];
+            else
+               usage( "unknown option " + args[ a ] );
+         }
+      }
+      catch ( RuntimeException ex )   // missing or non-numeric value
+      {
+         usage( "bad value for " + args[ a - 1 ] );
+      }
+      if ( args.length - a != 2 && args.length - a != 3 )
+         usage( "need a reference, a reads file and optionally a mates file" );
+      if ( interleaved && args.length - a == 3 )
+         usage( "-interleaved takes no mates file" );
+      if ( fm && seedShape != null && seedShape.indexOf( '0' ) >= 0 )
+         usage( "-fm needs a contiguous seed" );
+
+      AlignmentWriter out = new AlignmentWriter( outFile );
+
+      Aligner aligner = new Aligner( new AlignLog( logFile, logLevel ));
+      aligner.setThreadCount( threads );
+      aligner.setExtender( extender );
+      aligner.setMaxDiagonals( maxDiagonals );
+      aligner.setSecondaryHits( secondary );
+      if ( seedShape != null )
+         aligner.setSeedShape( seedShape );
+      if ( stride > 0 )
+         aligner.setSeedStride( stride );
+      aligner.setMinimizerWindow( window );
+      aligner.setFMIndex( fm );
+      aligner.setIndexFiles( indexFiles );
+      aligner.setBothStrands( bothStrands );
+      if ( maxInsert >= 0 )
+         aligner.setInsertSize( minInsert, maxInsert );
+      aligner.setReference( new FastaFile( args[ a ], true ));
+      aligner.setListener( out );
+
+      FastaReader reads = new FastaReader( args[ a + 1 ] );
+      FastaReader mates = null;
+      Iterator<DNASequence> input = reads;
+      if ( args.length - a == 3 )
+      {
+         mates = new FastaReader( args[ a + 2 ] );
+         input = new MatePairs( reads, mates );
+      }
+      else if ( interleaved )
+         input = new MatePairs( reads );
+      int unaligned = aligner.align( input );
+      reads.close();
+      if ( mates != null )
+         mates.close();
+      out.close();
+      aligner.close();
+      if ( metricsFile != null )
+         aligner.getMetrics().writeJson( metricsFile );
+      System.err.println( "Unaligned count: " + unaligned );
+   }
+   //------------------ usage( String ) ------------------------------------------
+   private static void usage( String problem )
+   {
+      System.err.println( "BatchAlign: " + problem );
+      System.err.println( "usage: java prog9.BatchAlign [ -t threads ] [ -o outFile ] "
+                            + "[ -log logFile ] [ -v ] [ -gap band ] [ -diag n ] "
+                            + "[ -k length ] [ -shape seedShape ] [ -stride n ] "
+                            + "[ -w window ] [ -fm ] [ -noidx ] [ -fwd ] "
+                            + "[ -interleaved ] [ -insert min max ] [ -secondary n ] "
+                            + "[ -metrics jsonFile ] "
+                            + "reference reads [ mates ]" );
+      System.exit( 1 );
+   }
+}
@@ -0,0 +1,103 @@
+/**
+ * ContigTable -- the contigs ( sequences ) of a reference and where each
+ *       lies in the composite, which is all of them end to end with
+ *       nothing in between. A composite position is turned into a contig
+ *       and a position within it by a binary search of the contig starts,
+ *       so a reference of many thousands of contigs costs two ints and a
+ *       name per contig.
+ *
+ *       Key public methods:
+ *           ContigTable( String[] names, int[] lengths )
+ *           int size() -- the number of contigs
+ *           int find( int pos ) -- the contig that holds composite position
+ *                    pos
+ *           String name( int c ), int start( int c ), int end( int c ),
+ *           int length( int c ) -- contig c; start and end are composite
+ *                    positions, end exclusive
+ *           boolean spans( int pos, int len ) -- true if composite
+ *                    positions pos .. pos + len - 1 are not all in one
+ *                    contig
+ */
+package prog9;
+
+public class ContigTable
+{
+   //------------------------- instance variables ------------------------------
+   private String[]  _names;
+   private int[]     _starts;    // composite position of each contig, and
+                                 // the total length after the last
+
+   //---------------------- constructor ----------------------------------------
+   /**
+    * contigs with the given names and lengths, in composite order
+    */
+   public ContigTable( String[] names, int[] lengths )
+   {
+      _names = names.clone();
+      _starts = new int[ names.length + 1 ];
+      for ( int c = 0; c < names.length; c++ )
+         _starts[ c + 1 ] = _starts[ c ] + lengths[ c ];
+   }
+   //---------------------- size() ----------------------------------------
+   public int size()
+   {
+      return _names.length;
+   }
+   //---------------------- find( int ) ----------------------------------------
+   /**
+    * Return the contig that holds composite position pos: the last one
+    * that starts at or before it, so empty contigs are never found.
+    * Positions before the composite give 0, after it the last contig.
+    */
+   public int find( int pos )
+   {
+      int lo = 0;
+      int hi = _names.length - 1;
+      while ( lo < hi )
+      {
+         int mid = ( lo + hi + 1 ) >>> 1;
+         if ( _starts[ mid ] <= pos )
+            lo = mid;
+         else
+            hi = mid - 1;
+      }
+      return lo;
+   }
+   //---------------------- name( int ) ----------------------------------------
+   public String name( int c )
+   {
+      return _names[ c ];
+   }
+   //---------------------- start( int ) ----------------------------------------
+   /**
+    * composite position of the first base of contig c
+    */
+   public int start( int c )
+   {
+      return _starts[ c ];
+   }
+   //---------------------- end( int ) ----------------------------------------
+   /**
+    * composite position just past the last base of contig c
+    */
+   public int end( int c )
+   {
+      return _starts[ c + 1 ];
+   }
+   //---------------------- length( int ) ----------------------------------------
+   public int length( int c )
+   {
+      return _starts[ c + 1 ] - _starts[ c ];
+   }
+   //---------------------- spans( int, int ) ----------------------------------------
+   /**
+    * true if the len bases from composite position pos cross from one
+    * contig into the next
+    */
+   public boolean spans( int pos, int len )
+   {
+      if ( _names.length <= 1 )
+         return false;
+      return pos + len > _starts[ find( pos ) + 1 ];
+   }
+}
@@ -5,8 +5,7 @@
  * @author rdb
  * Created 11/08/08
  */
-
-import java.awt.Color;
+package prog9;
 
 public class DNASequence implements Comparable<String>
 {
@@ -16,12 +15,16 @@ public class DNASequence implements Comparable<String>
    private final static String        complementChars = "TtAaCcGgXxNn-.";
    
    //----------------------- Instance variables ---------------------------
-   private String        dnaString;
+   private PackedDNA     dna;              // bases, 2 bits each
    private String        seqId;
    private String        seqHeader;
    
    // refPos gets mapped to X, overlapCount gets mapped to Y
    private int           refPos = -1;      // alignment of start to reference
+   private boolean       reverse = false;  // aligned as its reverse complement
+   private PackedDNA     reverseDNA = null; // built when first asked for
+   private DNASequence   mate = null;      // other read of a pair
+   private boolean       firstMate = false;
    private int           overlapCount = 0; // num sequences that overlap with
                                            //  this one already displayed.
    private int           seqLen = 0;
@@ -37,19 +40,43 @@ public class DNASequence implements Comparable<String>
       int endId = headerPlus.indexOf( " " );
       seqId = headerPlus.substring( 1, endId );
       seqHeader = header;
-      dnaString = dna;
       seqLen = dna.length();
-      checkDNA();
+      checkDNA( dna );
       checkId();
+      this.dna = new PackedDNA( dna );
    }
    //++++++++++++++++++++++++++++ public methods ++++++++++++++++++++++++++
    //----------------------------- getDNA -------------------------------
     /**
-     * return the full dna sequence data as a String
+     * return the full dna sequence data as a String; this unpacks the
+     * sequence, so code that only compares bases should use getPacked()
      */
    public String getDNA()
    {
-      return this.dnaString;
+      return this.dna.toString();
+   }
+   //----------------------------- getPacked -------------------------------
+    /**
+     * return the dna sequence data in its packed 2-bit form
+     */
+   public PackedDNA getPacked()
+   {
+      return this.dna;
+   }
+   //----------------------------- getReverseComplement -------------------------
+    /**
+     * return the reverse complement of the sequence in packed form; it is
+     * built the first time it is asked for and kept
+     */
+   public PackedDNA getReverseComplement()
+   {
+      if ( reverseDNA == null )
+      {
+         PackedDNA rc = new PackedDNA( seqLen );
+         this.dna.reverseComplement( rc );
+         reverseDNA = rc;
+      }
+      return reverseDNA;
    }
    //----------------------------- getHeader() -------------------------------
     /**
@@ -92,6 +119,48 @@ public class DNASequence implements Comparable<String>
    {
       return refPos;
    }
+   //-------------------- setReverse( boolean ) -------------------
+   /**
+    * record whether the read aligned as its reverse complement
+    */
+   public void setReverse( boolean r )
+   {
+      reverse = r;
+   }
+   //-------------------- isReverse() -------------------
+   /**
+    * true if the read aligned as its reverse complement
+    */
+   public boolean isReverse()
+   {
+      return reverse;
+   }
+   //-------------------- setMate( DNASequence, boolean ) -------------------
+   /**
+    * make m this read's mate; first says whether this read is the first
+    * of the pair. See MatePairs.link().
+    */
+   public void setMate( DNASequence m, boolean first )
+   {
+      mate = m;
+      firstMate = first;
+   }
+   //-------------------- getMate() -------------------
+   /**
+    * return the other read of this read's pair, or null if it is unpaired
+    */
+   public DNASequence getMate()
+   {
+      return mate;
+   }
+   //-------------------- isFirstMate() -------------------
+   /**
+    * true if this read is the first read of a pair
+    */
+   public boolean isFirstMate()
+   {
+      return firstMate;
+   }
    //-------------------- setOverLap( int o ) -------------------
    /**
     * set to the number of reads that overlap this one and are
@@ -125,6 +194,14 @@ public class DNASequence implements Comparable<String>
    {
       return seqId.compareTo( seqName );
    }
+   //----------------------- isValid( char ) -------------------
+   /**
+    * true if nuc is one of the valid nucleotide characters
+    */
+   public static boolean isValid( char nuc )
+   {
+      return validNucChars.indexOf( nuc ) >= 0;
+   }
    //-------------------------------- toString() -----------------------------
    /**
     * Returns a single string that reproduces an approximation to the input 
@@ -140,6 +217,7 @@ public class DNASequence implements Comparable<String>
     */
    public String toString()
    {
+      String dnaString = dna.toString();
       StringBuffer result = new StringBuffer( seqHeader );
       result.append( "\n" );
       int i = 0;
@@ -158,17 +236,17 @@ public class DNASequence implements Comparable<String>
    
    
    //++++++++++++++++++++++++++  private methods ++++++++++++++++++++++++++++
-   //------------------- checkDNA() ----------------------------------
+   //------------------- checkDNA( String ) ----------------------------------
    /**
     * check each character to make sure it is a valid character.
     * Throw InvalidDNASequence exception.
     */
-   private void checkDNA()
+   private void checkDNA( String dnaString )
    {
       for ( int i = 0; i < dnaString.length(); i++ )
       {
          char nuc = dnaString.charAt( i );
-         if ( validNucChars.indexOf( nuc ) < 0 )
+         if ( !isValid( nuc ))
             //System.err.println( "DNASequence ERROR: Bad character: " + nuc );
             throw new DNASequenceException( "Bad character: " + nuc );
       }
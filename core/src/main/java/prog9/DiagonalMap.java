@@ -0,0 +1,187 @@
+/**
+ * DiagonalMap -- groups the seed hits of one read by diagonal
+ *       ( reference position - read position ), counting the seeds that
+ *       support each diagonal and remembering the first of them. All hits
+ *       on a diagonal describe the same ungapped alignment, so it need
+ *       only be extended once. The hits of the read's reverse complement
+ *       go in the same map, on diagonals of their own.
+ *
+ *       An open-addressing hash table of int keys maps each diagonal to an
+ *       entry; entries are numbered in the order their diagonals were first
+ *       added. clear() costs only the number of entries, so one map can be
+ *       reused for every read. A map is not thread safe; each thread needs
+ *       its own.
+ *
+ *       Key public methods:
+ *           void add( int diagonal, int readPos ) -- count a seed hit
+ *           void add( int diagonal, int readPos, boolean reverse ) -- count
+ *                    a seed hit of the read or its reverse complement
+ *           int size(), int diagonal( int e ), int count( int e ),
+ *           int readPos( int e ), boolean isReverse( int e ) -- the entries
+ *           int top( int n, int[] best ) -- the n best supported entries
+ *           void clear()
+ */
+package prog9;
+
+public class DiagonalMap
+{
+   //------------------------- class variables ---------------------------------
+   private final static int    MIXER = 0x9E3779B9;
+   private final static int    initialEntries = 64;
+
+   //------------------------- instance variables ------------------------------
+   private int[]   _table;      // entry + 1 for each slot, 0 if empty
+   private int     _shift;      // 32 - log2( table size )
+   private int     _size = 0;
+   private int[]   _diagonal;   // per entry
+   private int[]   _count;
+   private int[]   _readPos;    // read position of the first seed
+   private boolean[] _reverse;  // on the reverse complement
+   private int[]   _slot;       // table slot of the entry
+
+   //---------------------- constructor ----------------------------------------
+   public DiagonalMap()
+   {
+      allocate( initialEntries );
+   }
+   //---------------------- add( int, int ) ----------------------------------
+   /**
+    * count a seed hit at read[ readPos ] on diagonal
+    */
+   public void add( int diagonal, int readPos )
+   {
+      add( diagonal, readPos, false );
+   }
+   //---------------------- add( int, int, boolean ) ---------------------------
+   /**
+    * count a seed hit at readPos on diagonal of the read, or of its reverse
+    * complement if reverse is true
+    */
+   public void add( int diagonal, int readPos, boolean reverse )
+   {
+      int mask = _table.length - 1;
+      int slot = (( 2 * diagonal + ( reverse ? 1 : 0 )) * MIXER ) >>> _shift;
+      while ( _table[ slot ] != 0 )
+      {
+         int e = _table[ slot ] - 1;
+         if ( _diagonal[ e ] == diagonal && _reverse[ e ] == reverse )
+         {
+            _count[ e ]++;
+            return;
+         }
+         slot = ( slot + 1 ) & mask;
+      }
+      if ( _size == _diagonal.length )
+      {
+         grow();
+         add( diagonal, readPos, reverse );
+         return;
+      }
+      _table[ slot ] = _size + 1;
+      _diagonal[ _size ] = diagonal;
+      _count[ _size ] = 1;
+      _readPos[ _size ] = readPos;
+      _reverse[ _size ] = reverse;
+      _slot[ _size ] = slot;
+      _size++;
+   }
+   //---------------------- size() ----------------------------------
+   public int size()
+   {
+      return _size;
+   }
+   //---------------------- diagonal( int ) ----------------------------------
+   public int diagonal( int e )
+   {
+      return _diagonal[ e ];
+   }
+   //---------------------- count( int ) ----------------------------------
+   /**
+    * the number of seeds on the diagonal of entry e
+    */
+   public int count( int e )
+   {
+      return _count[ e ];
+   }
+   //---------------------- readPos( int ) ----------------------------------
+   /**
+    * the read position of the first seed on the diagonal of entry e
+    */
+   public int readPos( int e )
+   {
+      return _readPos[ e ];
+   }
+   //---------------------- isReverse( int ) ----------------------------------
+   /**
+    * true if entry e is a diagonal of the read's reverse complement
+    */
+   public boolean isReverse( int e )
+   {
+      return _reverse[ e ];
+   }
+   //---------------------- top( int, int[] ) ----------------------------------
+   /**
+    * Put the entries of the n diagonals with the most seeds in best, most
+    * first; ties go to the diagonal that was added first. Returns the
+    * number of entries, at most n and best.length.
+    */
+   public int top( int n, int[] best )
+   {
+      n = Math.min( n, best.length );
+      int found = 0;
+      for ( int e = 0; e < _size; e++ )
+      {
+         int c = _count[ e ];
+         if ( found == n && c <= _count[ best[ n - 1 ]] )
+            continue;
+         int i = found < n ? found++ : n - 1;   // insertion sort into best
+         for ( ; i > 0 && _count[ best[ i - 1 ]] < c; i-- )
+            best[ i ] = best[ i - 1 ];
+         best[ i ] = e;
+      }
+      return found;
+   }
+   //---------------------- clear() ----------------------------------
+   public void clear()
+   {
+      for ( int e = 0; e < _size; e++ )
+         _table[ _slot[ e ]] = 0;
+      _size = 0;
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //---------------------- allocate( int ) ----------------------------------
+   /**
+    * room for entries entries, in a table at most half full
+    */
+   private void allocate( int entries )
+   {
+      int tableSize = Integer.highestOneBit( entries ) * 2;
+      _table = new int[ tableSize ];
+      _shift = 32 - Integer.numberOfTrailingZeros( tableSize );
+      _diagonal = new int[ entries ];
+      _count = new int[ entries ];
+      _readPos = new int[ entries ];
+      _reverse = new boolean[ entries ];
+      _slot = new int[ entries ];
+   }
+   //---------------------- grow() ----------------------------------
+   /**
+    * double the capacity, keeping the entries and their order
+    */
+   private void grow()
+   {
+      int[] diagonal = _diagonal;
+      int[] count = _count;
+      int[] readPos = _readPos;
+      boolean[] reverse = _reverse;
+      int size = _size;
+      allocate( 2 * diagonal.length );
+      _size = 0;
+      for ( int e = 0; e < size; e++ )
+      {
+         add( diagonal[ e ], readPos[ e ], reverse[ e ] );
+         _count[ e ] = count[ e ];
+      }
+   }
+}
@@ -0,0 +1,32 @@
+/**
+ * Extender -- grows a seed hit into a score for the whole read. The
+ *       Aligner hands every seed hit to its Extender and keeps the hit
+ *       with the best score.
+ *
+ *       Extenders are called from several worker threads at once, so an
+ *       implementation must keep its working state per call or per thread.
+ *
+ *       Key public methods:
+ *           int extend( PackedDNA ref, int refStart, int refEnd,
+ *                       PackedDNA read, int refPos, int readPos ) -- the
+ *                    percent of the read that matches the reference around
+ *                    the seed that starts at ref[ refPos ] and
+ *                    read[ readPos ], 0 to 100
+ *
+ *       ref is the composite of all the contigs of the reference, and
+ *       ref[ refStart .. refEnd ) is the contig the seed lies in; an
+ *       alignment never runs past either end of it into the next contig.
+ */
+package prog9;
+
+public interface Extender
+{
+   //---------------------- extend( PackedDNA, int, int, PackedDNA, int, int ) --
+   /**
+    * score the read against ref[ refStart .. refEnd ), given that the seed
+    * at read[ readPos ] matches ref[ refPos ]; return a percent of the read
+    * length, or 0 if the hit was abandoned as hopeless
+    */
+   public int extend( PackedDNA ref, int refStart, int refEnd,
+                      PackedDNA read, int refPos, int readPos );
+}
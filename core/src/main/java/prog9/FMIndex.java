@@ -0,0 +1,332 @@
+/**
+ * FMIndex -- a compressed SeedIndex: the Burrows-Wheeler transform of the
+ *       reference with sampled occurrence counts and a sampled suffix
+ *       array. A seed of any length is found by backward search, one step
+ *       per base, and its hits are a range of suffix array rows; each hit
+ *       position is recovered from the nearest sampled row.
+ *
+ *       The BWT is stored 2 bits per row like PackedDNA, with a bitmap of
+ *       the rows that hold the end marker or a special character. Every
+ *       occRate rows there is a count of each base so far, and counting
+ *       within a block is done 32 rows a word with bit operations. Rows
+ *       whose reference position is a multiple of saRate are sampled, as
+ *       are rows that follow a special character, so locating a hit walks
+ *       back at most saRate - 1 bases. Altogether about 6 bits per base,
+ *       3 times the 2-bit reference.
+ *
+ *       The suffix array is built once, by prefix doubling with radix
+ *       sorts, and then dropped except for the samples.
+ *
+ *       Key public methods:
+ *           FMIndex( PackedDNA ref, int k ) -- index the reference; seeds
+ *                    for the Aligner are k bases long
+ *           long search( PackedDNA dna, int start, int len ) -- the rows
+ *                    of the exact matches of dna[ start .. start + len )
+ *           int matchLength( PackedDNA dna, int end ) -- the length of the
+ *                    longest exact match that ends at dna[ end - 1 ]
+ *           long findHits( PackedDNA dna, int start ), int hitAt( int h )
+ *                    -- as for SeedIndex
+ *           FMIndex( IndexFile.Reader in ), void save( IndexFile.Writer out )
+ *                    -- load and save the index
+ */
+package prog9;
+
+import java.io.IOException;
+import java.util.*;
+
+public class FMIndex implements SeedIndex
+{
+   //------------------------- class variables ---------------------------------
+   private final static int    occRate = 64;    // rows per occurrence count
+   private final static int    saRate  = 32;    // positions per SA sample
+   private final static int    MAX_K   = 31;
+
+   // symbol ranks while sorting: end marker, A, C, G, T, special
+   private final static int    END = 0;
+   private final static int    SPECIAL = 5;
+
+   private final static long[] REPEAT = { 0L, 0x5555555555555555L,
+                                          0xAAAAAAAAAAAAAAAAL, -1L };
+
+   //------------------------- instance variables ------------------------------
+   private int     _k;
+   private int     _rows;        // reference length + 1 for the end marker
+   private long[]  _bwt;         // 2-bit code of each row's preceding base
+   private long[]  _special;     // rows whose preceding base is not ACGT
+   private int[]   _occ;         // 4 counts per occRate rows
+   private int[]   _first;       // first row of the suffixes starting with each base
+   private long[]  _sampled;     // rows with a stored position
+   private int[]   _sampleRank;  // sampled rows before each 64
+   private int[]   _samples;     // positions of the sampled rows, in row order
+
+   //---------------------- constructor ----------------------------------------
+   /**
+    * Build the index of the whole reference
+    */
+   public FMIndex( PackedDNA ref, int k )
+   {
+      if ( k < 1 || k > MAX_K )
+         throw new IllegalArgumentException( "Invalid k-mer length: " + k );
+      _k = k;
+      int n = ref.length();
+      _rows = n + 1;
+      int[] sa = suffixArray( ref );
+
+      // BWT, special bitmap and counts
+      _bwt = new long[ ( _rows + 31 ) >> 5 ];
+      _special = new long[ ( _rows + 63 ) >> 6 ];
+      _occ = new int[ 4 * ( _rows / occRate + 1 ) ];
+      int[] counts = new int[ 4 ];
+      int nSampled = 0;
+      _sampled = new long[ ( _rows + 63 ) >> 6 ];
+      for ( int row = 0; row < _rows; row++ )
+      {
+         if ( row % occRate == 0 )
+            System.arraycopy( counts, 0, _occ, 4 * ( row / occRate ), 4 );
+         int pos = sa[ row ];
+         boolean special = pos == 0 || ref.isSpecial( pos - 1 );
+         if ( special )
+            _special[ row >> 6 ] |= 1L << row;
+         else
+         {
+            int code = ref.code( pos - 1 );
+            _bwt[ row >> 5 ] |= (long) code << (( row & 31 ) << 1 );
+            counts[ code ]++;
+         }
+         if ( special || pos % saRate == 0 )
+         {
+            _sampled[ row >> 6 ] |= 1L << row;
+            nSampled++;
+         }
+      }
+      // occ( c, _rows ) starts from block _rows / occRate, which the loop
+      // never reaches when _rows is a multiple of occRate
+      if ( _rows % occRate == 0 )
+         System.arraycopy( counts, 0, _occ, 4 * ( _rows / occRate ), 4 );
+      _first = new int[ 4 ];
+      int next = 1;                    // row 0 is the end marker
+      for ( int c = 0; c < 4; c++ )
+      {
+         _first[ c ] = next;
+         next += counts[ c ];
+      }
+
+      // sampled positions, with a rank count per 64 rows to find them
+      _samples = new int[ nSampled ];
+      _sampleRank = new int[ _sampled.length ];
+      int s = 0;
+      for ( int row = 0; row < _rows; row++ )
+      {
+         if ( row % 64 == 0 )
+            _sampleRank[ row >> 6 ] = s;
+         if ( ( _sampled[ row >> 6 ] & ( 1L << row )) != 0 )
+            _samples[ s++ ] = sa[ row ];
+      }
+   }
+   /**
+    * Load an index saved by save()
+    */
+   public FMIndex( IndexFile.Reader in )
+   {
+      _k = in.getInt();
+      _rows = in.getInt();
+      _first = in.getInts();
+      _bwt = in.getLongs();
+      _special = in.getLongs();
+      _occ = in.getInts();
+      _sampled = in.getLongs();
+      _sampleRank = in.getInts();
+      _samples = in.getInts();
+   }
+   //---------------------- save( IndexFile.Writer ) ----------------------------
+   public void save( IndexFile.Writer out ) throws IOException
+   {
+      out.putInt( _k );
+      out.putInt( _rows );
+      out.putInts( _first );
+      out.putLongs( _bwt );
+      out.putLongs( _special );
+      out.putInts( _occ );
+      out.putLongs( _sampled );
+      out.putInts( _sampleRank );
+      out.putInts( _samples );
+   }
+   //---------------------- kmerLength() ----------------------------------------
+   public int kmerLength()
+   {
+      return _k;
+   }
+   //---------------------- seedMask() ----------------------------------------
+   public long seedMask()
+   {
+      return PackedDNA.lowBases( _k ) & PackedDNA.EVEN_BITS;
+   }
+   //---------------------- findHits( PackedDNA, int ) -------------------------
+   public long findHits( PackedDNA dna, int start )
+   {
+      if ( start < 0 || start + _k > dna.length() || dna.hasSpecial( start, _k ))
+         return INVALID;
+      return search( dna, start, _k );
+   }
+   //---------------------- search( PackedDNA, int, int ) -------------------------
+   /**
+    * Backward search for dna[ start .. start + len ), which must be ACGT
+    * only. Returns the suffix array rows of its matches, first << 32 |
+    * end, or NOT_FOUND.
+    */
+   public long search( PackedDNA dna, int start, int len )
+   {
+      int lo = 0;
+      int hi = _rows;
+      for ( int i = start + len - 1; i >= start; i-- )
+      {
+         int c = dna.code( i );
+         lo = _first[ c ] + occ( c, lo );
+         hi = _first[ c ] + occ( c, hi );
+         if ( lo >= hi )
+            return NOT_FOUND;
+      }
+      return (long) lo << 32 | hi;
+   }
+   //---------------------- matchLength( PackedDNA, int ) -------------------------
+   /**
+    * the length of the longest stretch of dna that ends at dna[ end - 1 ]
+    * and occurs exactly in the reference
+    */
+   public int matchLength( PackedDNA dna, int end )
+   {
+      int lo = 0;
+      int hi = _rows;
+      int i = end - 1;
+      for ( ; i >= 0 && ! dna.isSpecial( i ); i-- )
+      {
+         int c = dna.code( i );
+         int nextLo = _first[ c ] + occ( c, lo );
+         int nextHi = _first[ c ] + occ( c, hi );
+         if ( nextLo >= nextHi )
+            break;
+         lo = nextLo;
+         hi = nextHi;
+      }
+      return end - 1 - i;
+   }
+   //---------------------- hitAt( int ) ----------------------------------
+   /**
+    * the reference position of suffix array row h
+    */
+   public int hitAt( int h )
+   {
+      int steps = 0;
+      while ( ( _sampled[ h >> 6 ] & ( 1L << h )) == 0 )
+      {
+         int c = (int) ( _bwt[ h >> 5 ] >>> (( h & 31 ) << 1 )) & 3;
+         h = _first[ c ] + occ( c, h );
+         steps++;
+      }
+      int rank = _sampleRank[ h >> 6 ]
+                 + Long.bitCount( _sampled[ h >> 6 ] & (( 1L << h ) - 1 ));
+      return _samples[ rank ] + steps;
+   }
+   //---------------------- sortedHits() ----------------------------------
+   /**
+    * suffix array rows are in suffix order, not position order
+    */
+   public boolean sortedHits()
+   {
+      return false;
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //---------------------- occ( int, int ) ----------------------------------
+   /**
+    * the number of rows before row that are preceded by base c
+    */
+   private int occ( int c, int row )
+   {
+      int block = row / occRate;
+      int count = _occ[ 4 * block + c ];
+      for ( int r = block * occRate; r < row; r += 32 )
+      {
+         int n = Math.min( 32, row - r );
+         long x = _bwt[ r >> 5 ] ^ REPEAT[ c ];
+         long same = ~( x | ( x >>> 1 )) & PackedDNA.EVEN_BITS
+                     & PackedDNA.lowBases( n );
+         int special = (int) ( _special[ r >> 6 ] >>> ( r & 63 ));
+         count += Long.bitCount( same & ~PackedDNA.spread( special ));
+      }
+      return count;
+   }
+   //---------------------- suffixArray( PackedDNA ) ----------------------------------
+   /**
+    * The suffix array of ref followed by an end marker, by prefix doubling:
+    * once the suffixes are sorted on their first h symbols, sorting the
+    * pairs ( rank of i, rank of i + h ) sorts them on 2h. Each round is
+    * two stable counting sorts.
+    */
+   private static int[] suffixArray( PackedDNA ref )
+   {
+      int n = ref.length() + 1;
+      int[] sa = new int[ n ];
+      int[] rank = new int[ n ];
+      int[] tmp = new int[ n ];
+      int[] count = new int[ Math.max( n, SPECIAL + 1 ) + 1 ];
+
+      for ( int i = 0; i < n - 1; i++ )
+         rank[ i ] = ref.isSpecial( i ) ? SPECIAL : ref.code( i ) + 1;
+      rank[ n - 1 ] = END;
+      for ( int i = 0; i < n; i++ )
+         tmp[ i ] = i;
+      countingSort( tmp, sa, rank, count, SPECIAL + 1 );
+      int classes = renumber( sa, rank, tmp, 0 );
+
+      for ( int h = 1; classes < n; h <<= 1 )
+      {
+         // order by the second half: suffixes too short for one come first
+         int p = 0;
+         for ( int i = n - h; i < n; i++ )
+            tmp[ p++ ] = i;
+         for ( int i = 0; i < n; i++ )
+            if ( sa[ i ] >= h )
+               tmp[ p++ ] = sa[ i ] - h;
+         countingSort( tmp, sa, rank, count, classes );
+         classes = renumber( sa, rank, tmp, h );
+      }
+      return sa;
+   }
+   //---------------------- countingSort( int[], int[], int[], int[], int ) ---------
+   /**
+    * stable sort of the positions in from into to by their rank
+    */
+   private static void countingSort( int[] from, int[] to, int[] rank,
+                                     int[] count, int ranks )
+   {
+      Arrays.fill( count, 0, ranks + 1, 0 );
+      for ( int pos: from )
+         count[ rank[ pos ] + 1 ]++;
+      for ( int r = 1; r <= ranks; r++ )
+         count[ r ] += count[ r - 1 ];
+      for ( int pos: from )
+         to[ count[ rank[ pos ]]++ ] = pos;
+   }
+   //---------------------- renumber( int[], int[], int[], int ) ---------
+   /**
+    * Give the sorted suffixes new ranks 0, 1, ..., equal only if both their
+    * rank and the rank h further on are equal; return the number of ranks.
+    * scratch is overwritten.
+    */
+   private static int renumber( int[] sa, int[] rank, int[] scratch, int h )
+   {
+      int n = sa.length;
+      scratch[ sa[ 0 ]] = 0;
+      for ( int i = 1; i < n; i++ )
+      {
+         int a = sa[ i - 1 ];
+         int b = sa[ i ];
+         boolean same = rank[ a ] == rank[ b ] && ( h == 0 || a + h < n 
+                        && b + h < n && rank[ a + h ] == rank[ b + h ] );
+         scratch[ b ] = scratch[ a ] + ( same ? 0 : 1 );
+      }
+      System.arraycopy( scratch, 0, rank, 0, n );
+      return rank[ sa[ n - 1 ]] + 1;
+   }
+}
@@ -0,0 +1,326 @@
+/**
+ * FastaFile -- This class implements an interface to a file containing
+ *       DNA sequences in FASTA format. This implementation reads the entire
+ *       file at once and stores the sequences into a Vector of DNASequence
+ *       objects. This is a viable implementation only for very small 
+ *       data sets -- an application designed to use real genome data
+ *       would not be able to fit all the data in memory at one time;
+ *       FastaReader streams such files one sequence at a time.
+ * 
+ *       Alternatively, the file can be memory mapped (see MappedFasta); then
+ *       getComposite() is a view of the mapped file and DNASequence
+ *       objects are only created if they are asked for. The Aligner and
+ *       the GUI use getPackedComposite(), though, which is always a packed
+ *       copy on the heap, built once from the view or the sequences;
+ *       only getComposite() itself is zero copy.
+ * 
+ *       Key public methods:
+ *           FastaFile( String filename ) -- filename must be a valid readable
+ *                    Fasta file or else a FileNotFoundException is thrown.
+ *           FastaFile( String filename, boolean map ) -- memory map the
+ *                    file if map is true
+ *           iterator<DNASequence>() -- returns an iterator over the sequences
+ *                    in the file.
+ *           DNASequence get( int i ) -- returns the i-th sequence in the file
+ *                     if it exists; otherwise it returns null
+ *           int size() -- returns the number of sequences in the file
+ *           String getFileName() -- the name of the file
+ *           CharSequence getComposite(), PackedDNA getPackedComposite() --
+ *                    all the sequences end to end
+ *           ContigTable getContigs() -- where each sequence lies in the
+ *                    composite
+ * 
+ * @author rdb
+ * April 25, 2009
+ * 
+ */
+package prog9;
+
+import java.io.*;
+import java.util.*;
+
+public class FastaFile implements Iterable
+{
+   //------------------------- instance variables ------------------------------
+   private String              fileName;
+   private Vector<DNASequence> sequences;
+   private MappedFasta         mapped = null;   // set if the file is mapped
+   
+   // composites are built once and shared; changing sequences clears them
+   private String              composite = null;
+   private PackedDNA           packedComposite = null;
+   private ContigTable         contigs = null;
+
+   //---------------------- constructor ----------------------------------------
+   /**
+    * Constructor -- is the main code for the app
+    */
+   public FastaFile( String fileName )
+   {
+      this.fileName = fileName;
+      readSequences( fileName );
+   }
+   /**
+    * Constructor -- if map is true, memory map the file rather than
+    * reading it
+    */
+   public FastaFile( String fileName, boolean map )
+   {
+      this.fileName = fileName;
+      if ( !map )
+         readSequences( fileName );
+      else
+      {
+         try
+         {
+            mapped = new MappedFasta( fileName );
+         }
+         catch ( IOException ioe )
+         {
+            System.err.println( "Unable to open file: " + fileName + "\n"
+                                  + ioe.getMessage() );
+            sequences = new Vector<DNASequence>();
+         }
+      }
+   }
+   //---------------------- getFileName() ----------------------------------------
+   /**
+    * the name of the file the sequences were read from
+    */
+   public String getFileName()
+   {
+      return fileName;
+   }
+   //---------------------- get( int ) ----------------------------------------
+   /**
+    * return the i-th sequence or null
+    */
+   public DNASequence get( int i )
+   {
+      loadSequences();
+      if ( sequences == null || i >= sequences.size() )
+         return null;
+      else
+         return sequences.get( i );
+   }
+   //---------------------- size() ----------------------------------------
+   /**
+    * number of sequences in the file
+    */
+   public int size()
+   {
+      if ( mapped != null )
+         return mapped.size();
+      if ( sequences == null )
+         return 0;
+      else
+         return sequences.size();
+   }
+   //---------------------- compositeLength() ----------------------------------------
+   /**
+    * the total length of all sequences in the file
+    */
+   public int compositeLength()
+   {
+      int len = 0;
+      if ( mapped != null )
+      {
+         for ( int i = 0; i < mapped.size(); i++ )
+            len += mapped.sequenceLength( i );
+      }
+      else if ( sequences != null )
+      {
+         Iterator<DNASequence> iter = this.iterator();
+         while ( iter.hasNext() )
+            len += iter.next().length();
+      }
+      return len;
+   }
+   
+   //---------------------- iterator() ----------------------------------------
+   /**
+    * return an iterator over the DNASequences
+    */
+   public Iterator<DNASequence> iterator()
+   {
+      loadSequences();
+      return new SequenceIterator();
+   }
+   //--------------------------- findSequence( String ) ------------------------
+   /**
+    * Search in the sequences collection for a sequence with the requested id.
+    * If found, return it, else return null.
+    */
+   public DNASequence findSequence( String id )
+   {
+      DNASequence found = null;
+      loadSequences();
+      for ( int i = 0; i < sequences.size() && found == null; i++ )
+      {
+         DNASequence seq = sequences.get( i );
+         if ( seq.getId().equals( id ))
+            found = seq;
+      }
+      return found;
+   }
+   //---------------------- getComposite() ------------------
+   /**
+    * Return the concatenation of all sequences in the fasta file, with
+    * nothing between them; getContigs() says where each one starts. For a
+    * mapped file this is a view of the mapping, not a copy. Either way the
+    * bases are upper case.
+    */
+   public synchronized CharSequence getComposite()
+   {
+      if ( mapped != null )
+         return mapped;
+      if ( composite == null )
+         composite = getComposite( "" );
+      return composite;
+   }
+   
+   //---------------------- getComposite( String ) ------------------
+   /**
+    * Return a single string that is the concatenation of all sequences
+    * in the fasta file, separated by the parameter separator.
+    */
+   public String getComposite( String separator )
+   {
+      StringBuffer reference = new StringBuffer();
+      Iterator<DNASequence> iter = this.iterator();
+      while ( iter.hasNext() )
+      {
+         reference.append( iter.next().getPacked() );
+         if ( iter.hasNext() )
+            reference.append( separator );
+      }
+      return reference.toString();
+   }
+   //---------------------- getPackedComposite() ------------------
+   /**
+    * Return the same sequence as getComposite(), packed 2 bits per base.
+    * It is built on the first call and the same object is returned after
+    * that, so callers must not modify it. This is what the Aligner works
+    * on, so even a mapped reference is copied once, at a quarter of a
+    * byte per base.
+    */
+   public synchronized PackedDNA getPackedComposite()
+   {
+      if ( packedComposite != null )
+         return packedComposite;
+      if ( mapped != null )
+         packedComposite = new PackedDNA( mapped );
+      else
+      {
+         packedComposite = new PackedDNA( compositeLength() );
+         Iterator<DNASequence> iter = this.iterator();
+         while ( iter.hasNext() )
+            packedComposite.append( iter.next().getPacked() );
+      }
+      return packedComposite;
+   }
+   //---------------------- getContigs() ------------------
+   /**
+    * Return the name and place in the composite of each sequence. Like the
+    * composites, it is built on the first call; for a mapped file the
+    * names come from the headers, so no DNASequence objects are made.
+    */
+   public synchronized ContigTable getContigs()
+   {
+      if ( contigs != null )
+         return contigs;
+      int n = size();
+      String[] names = new String[ n ];
+      int[] lengths = new int[ n ];
+      for ( int i = 0; i < n; i++ )
+      {
+         if ( mapped != null )
+         {
+            String header = mapped.getHeader( i ) + " ";
+            names[ i ] = header.substring( 1, header.indexOf( " " ));
+            lengths[ i ] = mapped.sequenceLength( i );
+         }
+         else
+         {
+            names[ i ] = sequences.get( i ).getId();
+            lengths[ i ] = sequences.get( i ).length();
+         }
+      }
+      contigs = new ContigTable( names, lengths );
+      return contigs;
+   }
+   //++++++++++++++++++++++ public internal class ++++++++++++++++++++++++++++
+   public class SequenceIterator implements Iterator<DNASequence>
+   {
+      //------------------ instance variables ------------------------------
+      private Iterator<DNASequence> vectorIterator = null;
+      //-----------------  constructor ------------------------------------
+      public SequenceIterator()
+      {
+         vectorIterator = sequences.iterator();
+      }
+      //------------------- hasNext() -----------------------------------
+      public boolean hasNext()
+      {
+         return vectorIterator.hasNext();
+      }
+      //------------------- next() ---------------------------------------
+      public DNASequence next()
+      {
+         return vectorIterator.next();
+      }
+      //------------------- remove() ---------------------------------------
+      public  void remove()
+      {
+         vectorIterator.remove();
+         sequenceSetChanged();
+      }
+   }
+      
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //------------------------ sequenceSetChanged() --------------------------
+   /**
+    * forget the cached composites; they no longer match the sequences
+    */
+   private synchronized void sequenceSetChanged()
+   {
+      composite = null;
+      packedComposite = null;
+      contigs = null;
+      mapped = null;   // the mapping no longer matches either
+   }
+   //------------------------ loadSequences() --------------------------
+   /**
+    * create the DNASequence objects of a mapped file the first time
+    * they are needed
+    */
+   private void loadSequences()
+   {
+      if ( sequences != null || mapped == null )
+         return;
+      sequences = new Vector<DNASequence>( mapped.size() );
+      for ( int i = 0; i < mapped.size(); i++ )
+         sequences.add( new DNASequence( mapped.getHeader( i ), 
+                                         mapped.sequence( i )));
+   }
+   //------------------------ readSequences( String  ) --------------------------
+   /**
+    * read every sequence in the file; FastaReader does the parsing and
+    * reports any errors
+    */
+   private void readSequences( String fileName )
+   {
+      sequences = new Vector<DNASequence>();
+      FastaReader reader = new FastaReader( fileName );
+      while ( reader.hasNext() )
+         sequences.add( reader.next() );
+      reader.close();
+   }
+   //------------------------ printSequences() -------------------------------
+   private void printSequences()
+   {
+      System.out.println( "++++++++++++++++++++++++++++++++++++++++++++++++++" );
+      for ( int i = 0; i < sequences.size(); i++ )
+         System.out.print( sequences.get( i ));
+   }
+}
\ No newline at end of file
@@ -0,0 +1,199 @@
+/**
+ * FastaReader -- an iterator over the DNA sequences of a FASTA format file
+ *       that parses each record only when it is asked for. Unlike FastaFile
+ *       it never holds more than one record in memory, so it can read
+ *       files that are far larger than the heap.
+ *
+ *       The file is read through a FileChannel into a fixed ByteBuffer and
+ *       scanned a byte at a time; the bases of a record are appended to a
+ *       growable byte array that is reused for every record, so the cost
+ *       of a record is linear in its length.
+ *
+ *       Records with invalid characters are reported and skipped, just as
+ *       FastaFile does.
+ *
+ *       Key public methods:
+ *           FastaReader( String filename ) -- if the file cannot be opened
+ *                    or is not in FASTA format, an error is printed and
+ *                    the reader has no sequences
+ *           boolean hasNext(), DNASequence next() -- the usual iteration
+ *           void close() -- release the file
+ *
+ */
+package prog9;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+public class FastaReader implements Iterator<DNASequence>, Closeable
+{
+   //------------------------- class variables ---------------------------------
+   private final static int bufferSize = 1 << 16;
+
+   //------------------------- instance variables ------------------------------
+   private FileChannel    _channel = null;
+   private ByteBuffer     _buffer = ByteBuffer.allocateDirect( bufferSize );
+   private String         _nextHeader = null;  // header of the next record
+   private DNASequence    _next = null;        // parsed record for next()
+   private byte[]         _line = new byte[ 256 ];  // header being read
+   private byte[]         _dna = new byte[ 1 << 12 ]; // reused per record
+   private int            _dnaLength = 0;
+
+   //---------------------- constructor ----------------------------------------
+   public FastaReader( String fileName )
+   {
+      try
+      {
+         _channel = FileChannel.open( Paths.get( fileName ),
+                                      StandardOpenOption.READ );
+         _buffer.flip();   // start out empty
+         int first = nextByte();
+         if ( first < 0 )
+            System.err.println( "***Error: " + fileName + " is empty. " );
+         else if ( first != '>' )
+            System.err.println( "***Error: " + fileName +
+                               " does not start with '>' " );
+         else
+            _nextHeader = readHeader();
+      }
+      catch ( IOException ioe )
+      {
+         System.err.println( "Unable to open file: " + fileName + "\n"
+                               + ioe.getMessage() );
+         _nextHeader = null;
+      }
+      advance();
+   }
+   //------------------- hasNext() -----------------------------------
+   public boolean hasNext()
+   {
+      return _next != null;
+   }
+   //------------------- next() ---------------------------------------
+   public DNASequence next()
+   {
+      if ( _next == null )
+         throw new NoSuchElementException();
+      DNASequence seq = _next;
+      advance();
+      return seq;
+   }
+   //------------------- close() ---------------------------------------
+   public void close()
+   {
+      _next = null;
+      _nextHeader = null;
+      try
+      {
+         if ( _channel != null )
+            _channel.close();
+      }
+      catch ( IOException ioe )
+      {
+      }
+      _channel = null;
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //------------------------ advance() -------------------------------
+   /**
+    * parse records until a valid one is found or the file ends
+    */
+   private void advance()
+   {
+      _next = null;
+      while ( _next == null && _nextHeader != null )
+      {
+         String header = _nextHeader;
+         try
+         {
+            readSequence();
+            _next = new DNASequence( header,
+               new String( _dna, 0, _dnaLength, StandardCharsets.ISO_8859_1 ));
+         }
+         catch ( DNASequence.DNASequenceException dnaEx )
+         {
+            System.err.println( dnaEx.getMessage() + "\nSequence input ignored." );
+         }
+         catch ( IOException ioe )
+         {
+            System.err.println( "***Error reading sequence: " + ioe.getMessage() );
+            _nextHeader = null;
+         }
+      }
+   }
+   //------------------------ readHeader() -------------------------------
+   /**
+    * read the rest of a header line; the '>' has already been read
+    */
+   private String readHeader() throws IOException
+   {
+      int len = 0;
+      _line[ len++ ] = '>';
+      int b = nextByte();
+      while ( b >= 0 && b != '\n' )
+      {
+         if ( b != '\r' )
+         {
+            if ( len == _line.length )
+               _line = Arrays.copyOf( _line, 2 * len );
+            _line[ len++ ] = (byte) b;
+         }
+         b = nextByte();
+      }
+      return new String( _line, 0, len, StandardCharsets.ISO_8859_1 );
+   }
+   //------------------------ readSequence() -------------------------------
+   /**
+    * Read the bases of the current record into _dna, skipping line ends.
+    * Stops after reading the header of the next record, if any.
+    */
+   private void readSequence() throws IOException
+   {
+      _dnaLength = 0;
+      _nextHeader = null;
+      boolean lineStart = true;
+      int b = nextByte();
+      while ( b >= 0 )
+      {
+         if ( b == '\n' )
+            lineStart = true;
+         else if ( lineStart && b == '>' )
+         {
+            _nextHeader = readHeader();
+            return;
+         }
+         else
+         {
+            lineStart = false;
+            if ( b != '\r' )
+            {
+               if ( _dnaLength == _dna.length )
+                  _dna = Arrays.copyOf( _dna, 2 * _dnaLength );
+               _dna[ _dnaLength++ ] = (byte) b;
+            }
+         }
+         b = nextByte();
+      }
+   }
+   //------------------------ nextByte() -------------------------------
+   /**
+    * return the next byte of the file or -1 at the end
+    */
+   private int nextByte() throws IOException
+   {
+      if ( !_buffer.hasRemaining() )
+      {
+         _buffer.clear();
+         int n = _channel.read( _buffer );
+         _buffer.flip();
+         if ( n <= 0 )
+            return -1;
+      }
+      return _buffer.get() & 0xff;
+   }
+}
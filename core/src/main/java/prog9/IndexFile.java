@@ -0,0 +1,327 @@
+/**
+ * IndexFile -- saves a SeedIndex next to its FASTA file and loads it on
+ *       later runs, so a large reference is indexed only once.
+ *
+ *       The file is named after the FASTA file and the index settings
+ *       ( e.g. largeRef.txt.kmer-rc-11111111.idx ). Its header holds a magic
+ *       number, a format version, the index settings, and the length and
+ *       checksum of the packed reference it was built from; then come the
+ *       length and CRC32 of the index data. A file that does not match in
+ *       every one of these is ignored, and the index is rebuilt and saved
+ *       again.
+ *
+ *       Nothing in the header describes the index data itself, so any
+ *       change to what an index class saves, its layout or its contents,
+ *       must bump VERSION; otherwise files written by the old code keep
+ *       loading.
+ *
+ *       A saved index is read by memory mapping the file: the checksum is
+ *       taken over the mapped bytes and the arrays are bulk copied out of
+ *       them, so loading costs about as much as reading the file once.
+ *       Files are written to a temporary name and renamed into place, so
+ *       a half written file is never seen.
+ *
+ *       Key public methods:
+ *           static String fileName( String fastaFile, String settings )
+ *           static SeedIndex load( String file, String settings, PackedDNA ref )
+ *                    -- the saved index, or null if there is no valid one
+ *           static void save( String file, String settings, PackedDNA ref,
+ *                             SeedIndex index )
+ *
+ *       Each index class writes itself to a Writer and has a constructor
+ *       that reads itself back from a Reader.
+ */
+package prog9;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+public class IndexFile
+{
+   //------------------------- class variables ---------------------------------
+   public final static int     MAGIC   = 0x414C4958;   // "ALIX"
+   public final static int     VERSION = 3;      // 3: canonical KmerIndex
+
+   private final static int    bufferSize = 1 << 20;
+
+   //---------------------- fileName( String, String ) ---------------------------
+   /**
+    * the index file for fastaFile and the given index settings
+    */
+   public static String fileName( String fastaFile, String settings )
+   {
+      return fastaFile + "." + settings + ".idx";
+   }
+   //---------------------- load( String, String, PackedDNA ) --------------------
+   /**
+    * Return the index saved in file for settings and ref, or null if there
+    * is none or it is not valid.
+    */
+   public static SeedIndex load( String file, String settings, PackedDNA ref )
+   {
+      if ( ! new File( file ).exists() )
+         return null;
+      try
+      {
+         Reader in = new Reader( file, settings, ref );
+         if ( settings.startsWith( "kmer" ))
+            return new KmerIndex( in );
+         if ( settings.startsWith( "min" ))
+            return new MinimizerIndex( in );
+         if ( settings.startsWith( "fm" ))
+            return new FMIndex( in );
+         throw new IOException( "unknown index type " + settings );
+      }
+      catch ( IOException ioe )
+      {
+         System.err.println( "Ignoring index file " + file + ": " + ioe.getMessage() );
+         return null;
+      }
+      catch ( RuntimeException re )   // truncated or inconsistent data
+      {
+         System.err.println( "Ignoring index file " + file + ": " + re );
+         return null;
+      }
+   }
+   //---------------------- save( String, String, PackedDNA, SeedIndex ) ---------
+   /**
+    * Save index, built from ref with settings, in file. Failure is
+    * reported but otherwise ignored: the index is still usable.
+    */
+   public static void save( String file, String settings, PackedDNA ref,
+                            SeedIndex index )
+   {
+      Path target = Paths.get( file );
+      Path temp = Paths.get( file + ".tmp" );
+      try
+      {
+         Writer out = new Writer( temp, settings, ref );
+         index.save( out );
+         out.close();
+         Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING,
+                                   StandardCopyOption.ATOMIC_MOVE );
+      }
+      catch ( IOException ioe )
+      {
+         System.err.println( "***Error: unable to save index file " + file
+                             + ": " + ioe.getMessage() );
+         try
+         {
+            Files.deleteIfExists( temp );
+         }
+         catch ( IOException ignored )
+         {
+         }
+      }
+   }
+
+   //+++++++++++++++++++++++++ public inner classes +++++++++++++++++++++++++++
+   //------------------ class Writer --------------------------------------------
+   /**
+    * writes the header, then the index data through a large buffer,
+    * then goes back to fill in the data length and checksum
+    */
+   public static class Writer
+   {
+      private FileChannel  _channel;
+      private ByteBuffer   _buffer = ByteBuffer.allocateDirect( bufferSize );
+      private CRC32        _crc = new CRC32();
+      private long         _length = 0;       // index data bytes
+      private long         _trailerAt;        // where length and CRC go
+
+      //------------------ constructor ------------------------------
+      private Writer( Path file, String settings, PackedDNA ref ) throws IOException
+      {
+         _channel = FileChannel.open( file, StandardOpenOption.CREATE,
+                                            StandardOpenOption.WRITE,
+                                            StandardOpenOption.TRUNCATE_EXISTING );
+         byte[] name = settings.getBytes( StandardCharsets.US_ASCII );
+         ByteBuffer header = ByteBuffer.allocate( 40 + name.length );
+         header.putInt( MAGIC ).putInt( VERSION );
+         header.putInt( name.length ).put( name );
+         header.putInt( ref.length() ).putLong( ref.checksum() );
+         _trailerAt = header.position();
+         header.putLong( 0 ).putLong( 0 );
+         header.flip();
+         while ( header.hasRemaining() )
+            _channel.write( header );
+      }
+      //------------------ putInt( int ) ------------------------------
+      public void putInt( int value ) throws IOException
+      {
+         room( 4 );
+         _buffer.putInt( value );
+      }
+      //------------------ putLong( long ) ------------------------------
+      public void putLong( long value ) throws IOException
+      {
+         room( 8 );
+         _buffer.putLong( value );
+      }
+      //------------------ putString( String ) ------------------------------
+      public void putString( String value ) throws IOException
+      {
+         byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+         putInt( bytes.length );
+         room( bytes.length );
+         _buffer.put( bytes );
+      }
+      //------------------ putInts( int[] ) ------------------------------
+      /**
+       * write the length of the array, then its elements
+       */
+      public void putInts( int[] values ) throws IOException
+      {
+         putInt( values.length );
+         for ( int i = 0; i < values.length; )
+         {
+            room( 4 );
+            int n = Math.min( values.length - i, _buffer.remaining() / 4 );
+            _buffer.asIntBuffer().put( values, i, n );
+            _buffer.position( _buffer.position() + 4 * n );
+            i += n;
+         }
+      }
+      //------------------ putLongs( long[] ) ------------------------------
+      /**
+       * write the length of the array, then its elements
+       */
+      public void putLongs( long[] values ) throws IOException
+      {
+         putInt( values.length );
+         for ( int i = 0; i < values.length; )
+         {
+            room( 8 );
+            int n = Math.min( values.length - i, _buffer.remaining() / 8 );
+            _buffer.asLongBuffer().put( values, i, n );
+            _buffer.position( _buffer.position() + 8 * n );
+            i += n;
+         }
+      }
+      //------------------ close() ------------------------------
+      private void close() throws IOException
+      {
+         flush();
+         ByteBuffer trailer = ByteBuffer.allocate( 16 );
+         trailer.putLong( _length ).putLong( _crc.getValue() );
+         trailer.flip();
+         _channel.write( trailer, _trailerAt );
+         _channel.close();
+      }
+      //------------------ room( int ) ------------------------------
+      /**
+       * make room for bytes more bytes in the buffer
+       */
+      private void room( int bytes ) throws IOException
+      {
+         if ( _buffer.remaining() < bytes )
+            flush();
+      }
+      //------------------ flush() ------------------------------
+      private void flush() throws IOException
+      {
+         _buffer.flip();
+         _length += _buffer.remaining();
+         _crc.update( _buffer.duplicate() );
+         while ( _buffer.hasRemaining() )
+            _channel.write( _buffer );
+         _buffer.clear();
+      }
+   }
+   //------------------ class Reader --------------------------------------------
+   /**
+    * maps an index file, checks its header and checksum, and reads the
+    * index data back in the order it was written
+    */
+   public static class Reader
+   {
+      private ByteBuffer   _data;
+
+      //------------------ constructor ------------------------------
+      private Reader( String file, String settings, PackedDNA ref ) throws IOException
+      {
+         MappedByteBuffer map;
+         try ( FileChannel channel = FileChannel.open( Paths.get( file ),
+                                                       StandardOpenOption.READ ))
+         {
+            map = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+         }
+         try
+         {
+            if ( map.getInt() != MAGIC )
+               throw new IOException( "not an index file" );
+            if ( map.getInt() != VERSION )
+               throw new IOException( "index file version is not " + VERSION );
+            byte[] name = new byte[ count( map, 1 ) ];
+            map.get( name );
+            if ( ! new String( name, StandardCharsets.US_ASCII ).equals( settings ))
+               throw new IOException( "index settings differ" );
+            if ( map.getInt() != ref.length() || map.getLong() != ref.checksum() )
+               throw new IOException( "reference has changed" );
+            long length = map.getLong();
+            long crc = map.getLong();
+            if ( length != map.remaining() )
+               throw new IOException( "index file is truncated" );
+            _data = map.slice();
+            CRC32 check = new CRC32();
+            check.update( _data.duplicate() );
+            if ( check.getValue() != crc )
+               throw new IOException( "index file checksum failed" );
+         }
+         catch ( BufferUnderflowException bue )
+         {
+            throw new IOException( "index file is truncated" );
+         }
+      }
+      //------------------ getInt() ------------------------------
+      public int getInt()
+      {
+         return _data.getInt();
+      }
+      //------------------ getLong() ------------------------------
+      public long getLong()
+      {
+         return _data.getLong();
+      }
+      //------------------ getString() ------------------------------
+      public String getString()
+      {
+         byte[] bytes = new byte[ count( _data, 1 ) ];
+         _data.get( bytes );
+         return new String( bytes, StandardCharsets.UTF_8 );
+      }
+      //------------------ getInts() ------------------------------
+      public int[] getInts()
+      {
+         int[] values = new int[ count( _data, 4 ) ];
+         _data.asIntBuffer().get( values );
+         _data.position( _data.position() + 4 * values.length );
+         return values;
+      }
+      //------------------ getLongs() ------------------------------
+      public long[] getLongs()
+      {
+         long[] values = new long[ count( _data, 8 ) ];
+         _data.asLongBuffer().get( values );
+         _data.position( _data.position() + 8 * values.length );
+         return values;
+      }
+      //------------------ count( ByteBuffer, int ) ------------------------------
+      /**
+       * read the length of an array of size byte values from buffer; one
+       * that is negative or runs past the end of the buffer is corrupt,
+       * and is not allocated
+       */
+      private static int count( ByteBuffer buffer, int size )
+      {
+         int n = buffer.getInt();
+         if ( n < 0 || n > buffer.remaining() / size )
+            throw new BufferUnderflowException();
+         return n;
+      }
+   }
+}
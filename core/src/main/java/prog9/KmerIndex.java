@@ -0,0 +1,398 @@
+/**
+ * KmerIndex -- an index of every k-mer in a reference sequence. Each k-mer
+ *       that contains only A, C, G or T is taken as a long key of 2-bit
+ *       codes, first base in the low bits, just as PackedDNA.word() returns
+ *       it. An open-addressing hash table maps each key to a run of
+ *       reference positions stored in a single int array, so finding all
+ *       occurrences of a seed is one table probe instead of a scan of the
+ *       whole reference. Positions in a run are increasing.
+ *
+ *       Seeds may also be spaced: a shape such as "11011011" says which
+ *       bases of the seed count ( 1 ) and which are ignored ( 0 ), so a
+ *       mismatch at a 0 position does not lose the hit. Bases under a 0
+ *       may even be N.
+ *
+ *       A canonical index keys each seed by the smaller of it and its
+ *       reverse complement, and marks each hit with the strand it was
+ *       found on, so one lookup finds a seed on both strands. The shape
+ *       must then read the same backwards, as a contiguous one does.
+ *
+ *       Key public methods:
+ *           KmerIndex( PackedDNA ref, int k ) -- build the index; k must
+ *                    be between 1 and 31.
+ *           KmerIndex( PackedDNA ref, String shape ) -- build an index of
+ *                    spaced seeds; shape is 0s and 1s, starts and ends
+ *                    with 1 and is at most 31 long.
+ *           KmerIndex( PackedDNA ref, String shape, boolean canonical )
+ *                    -- build a canonical index if canonical is true
+ *           int lookup( PackedDNA dna, int start ) -- returns the slot for
+ *                    the k-mer that starts at dna[ start ], NOT_FOUND if
+ *                    it is not in the reference or INVALID if it has a
+ *                    character other than ACGT
+ *           int hitStart( int slot ), int hitEnd( int slot ) -- the range
+ *                    of hit indexes for the slot
+ *           int hitAt( int h ) -- the reference position of hit h
+ *           long findHits( PackedDNA dna, int start ) -- lookup, hitStart
+ *                    and hitEnd in one, as SeedIndex
+ *           KmerIndex( IndexFile.Reader in ), void save( IndexFile.Writer out )
+ *                    -- load and save the index
+ *
+ */
+package prog9;
+
+import java.io.IOException;
+import java.util.*;
+
+public class KmerIndex implements SeedIndex
+{
+   //------------------------- class variables ---------------------------------
+   private final static long   EMPTY  = -1L;
+   private final static long   MIXER  = 0x9E3779B97F4A7C15L;
+   private final static int    MAX_K  = 31;
+
+   //------------------------- instance variables ------------------------------
+   private int     _k;         // span of the seed, in bases
+   private String  _shape;
+   private long    _kmerMask;  // 2 bits set for each base of the shape that counts
+   private int     _careBits;  // 1 bit set for each base of the shape that counts
+   private int     _shift;     // 64 - log2( table size )
+   private long[]  _keys;      // packed k-mer in each slot or EMPTY
+   private int[]   _starts;    // first hit index of each slot
+   private int[]   _counts;    // number of hits in each slot
+   private int[]   _positions; // reference positions, grouped by slot
+   private boolean _canonical;
+   private long[]  _reverse;   // canonical: bit h set if hit h is the reverse complement
+
+   //---------------------- constructors ----------------------------------------
+   /**
+    * Build the index over all valid k-mers of the reference
+    */
+   public KmerIndex( PackedDNA ref, int k )
+   {
+      this( ref, contiguous( k ));
+   }
+   /**
+    * Build the index over all valid spaced seeds of the given shape
+    */
+   public KmerIndex( PackedDNA ref, String shape )
+   {
+      this( ref, shape, false );
+   }
+   /**
+    * Build the index over all valid spaced seeds of the given shape, keyed
+    * by the smaller of each seed and its reverse complement if canonical
+    * is true; a canonical shape must be symmetric
+    */
+   public KmerIndex( PackedDNA ref, String shape, boolean canonical )
+   {
+      int weight = setShape( shape );
+      if ( canonical && ! symmetric( shape ))
+         throw new IllegalArgumentException( "Canonical seeds need a symmetric shape, not "
+                                             + shape );
+      _canonical = canonical;
+      allocateTable( ref.length(), weight );
+
+      // first pass: count the occurrences of each seed
+      int last = ref.length() - _k;
+      int total = 0;
+      for ( int i = 0; i <= last; i++ )
+      {
+         if ( ( ref.specialBits( i ) & _careBits ) == 0 )
+         {
+            _counts[ insert( key( ref.word( i ))) ]++;
+            total++;
+         }
+      }
+
+      // prefix sums give each slot its run of the positions array
+      _starts = new int[ _keys.length ];
+      int next = 0;
+      for ( int s = 0; s < _keys.length; s++ )
+      {
+         _starts[ s ] = next;
+         next += _counts[ s ];
+      }
+
+      // second pass: fill in the positions, and their strands
+      _positions = new int[ total ];
+      _reverse = new long[ canonical ? ( total + 63 ) >> 6 : 0 ];
+      int[] fill = _starts.clone();
+      for ( int i = 0; i <= last; i++ )
+      {
+         if ( ( ref.specialBits( i ) & _careBits ) == 0 )
+         {
+            long seed = ref.word( i ) & _kmerMask;
+            long key = key( seed );
+            int h = fill[ find( key ) ]++;
+            _positions[ h ] = i;
+            if ( seed != key )
+               _reverse[ h >> 6 ] |= 1L << h;
+         }
+      }
+   }
+   /**
+    * Load an index saved by save()
+    */
+   public KmerIndex( IndexFile.Reader in )
+   {
+      setShape( in.getString() );
+      _shift = in.getInt();
+      _keys = in.getLongs();
+      _starts = in.getInts();
+      _counts = in.getInts();
+      _positions = in.getInts();
+      _canonical = in.getInt() != 0;
+      _reverse = in.getLongs();
+   }
+   //---------------------- save( IndexFile.Writer ) ----------------------------
+   public void save( IndexFile.Writer out ) throws IOException
+   {
+      out.putString( _shape );
+      out.putInt( _shift );
+      out.putLongs( _keys );
+      out.putInts( _starts );
+      out.putInts( _counts );
+      out.putInts( _positions );
+      out.putInt( _canonical ? 1 : 0 );
+      out.putLongs( _reverse );
+   }
+   //---------------------- kmerLength() ----------------------------------------
+   /**
+    * the length of the indexed k-mers; for spaced seeds, the span
+    */
+   public int kmerLength()
+   {
+      return _k;
+   }
+   //---------------------- shape() ----------------------------------------
+   /**
+    * the seed shape, all 1s for plain k-mers
+    */
+   public String shape()
+   {
+      return _shape;
+   }
+   //---------------------- seedMask() ----------------------------------------
+   /**
+    * a PackedDNA.mismatchMask mask of the bases of the shape that count
+    */
+   public long seedMask()
+   {
+      return _kmerMask & PackedDNA.EVEN_BITS;
+   }
+   //---------------------- lookup( PackedDNA, int ) -------------------------
+   /**
+    * return the slot of the k-mer starting at dna[ start ], NOT_FOUND if it
+    * is not in the reference, or INVALID if it runs off the end of dna or
+    * has a character other than ACGT where the shape counts
+    */
+   public int lookup( PackedDNA dna, int start )
+   {
+      if ( start < 0 || start + _k > dna.length() 
+           || ( dna.specialBits( start ) & _careBits ) != 0 )
+         return INVALID;
+      return find( key( dna.word( start )));
+   }
+   //---------------------- findHits( PackedDNA, int ) -------------------------
+   public long findHits( PackedDNA dna, int start )
+   {
+      int slot = lookup( dna, start );
+      if ( slot < 0 )
+         return slot;
+      return (long) hitStart( slot ) << 32 | hitEnd( slot );
+   }
+   //---------------------- hitStart( int ) ----------------------------------
+   /**
+    * index of the first hit for the slot returned by lookup
+    */
+   public int hitStart( int slot )
+   {
+      return _starts[ slot ];
+   }
+   //---------------------- hitEnd( int ) ----------------------------------
+   /**
+    * one past the index of the last hit for the slot returned by lookup
+    */
+   public int hitEnd( int slot )
+   {
+      return _starts[ slot ] + _counts[ slot ];
+   }
+   //---------------------- hitAt( int ) ----------------------------------
+   /**
+    * the reference position of the h-th hit
+    */
+   public int hitAt( int h )
+   {
+      return _positions[ h ];
+   }
+   //---------------------- sortedHits() ----------------------------------
+   /**
+    * positions in a run are increasing
+    */
+   public boolean sortedHits()
+   {
+      return true;
+   }
+   //---------------------- canonical() ----------------------------------
+   public boolean canonical()
+   {
+      return _canonical;
+   }
+   //---------------------- seedStrand( PackedDNA, int ) -------------------------
+   /**
+    * REVERSE if the reverse complement of the seed at dna[ start ] is the
+    * smaller, BOTH if they are the same, else FORWARD
+    */
+   public int seedStrand( PackedDNA dna, int start )
+   {
+      if ( ! _canonical )
+         return FORWARD;
+      long seed = dna.word( start ) & _kmerMask;
+      long reverse = PackedDNA.reverseComplement( seed, _k ) & _kmerMask;
+      return seed < reverse ? FORWARD : seed > reverse ? REVERSE : BOTH;
+   }
+   //---------------------- hitStrand( int ) ----------------------------------
+   /**
+    * REVERSE if the reference holds the reverse complement of hit h's key
+    */
+   public int hitStrand( int h )
+   {
+      if ( ! _canonical || ( _reverse[ h >> 6 ] & ( 1L << h )) == 0 )
+         return FORWARD;
+      return REVERSE;
+   }
+   //---------------------- contiguous( int ) ----------------------------------
+   /**
+    * the shape of a plain k-mer: k 1s
+    */
+   public static String contiguous( int k )
+   {
+      if ( k < 1 || k > MAX_K )
+         throw new IllegalArgumentException( "Invalid k-mer length: " + k );
+      char[] ones = new char[ k ];
+      Arrays.fill( ones, '1' );
+      return new String( ones );
+   }
+   //---------------------- checkShape( String ) ----------------------------------
+   /**
+    * throw IllegalArgumentException unless shape is a valid seed shape
+    */
+   public static void checkShape( String shape )
+   {
+      if ( ! shape.matches( "1|1[01]*1" ) || shape.length() > MAX_K )
+         throw new IllegalArgumentException( "Invalid seed shape: " + shape );
+   }
+   //---------------------- symmetric( String ) ----------------------------------
+   /**
+    * true if shape reads the same backwards, so it can be canonical
+    */
+   public static boolean symmetric( String shape )
+   {
+      return new StringBuilder( shape ).reverse().toString().equals( shape );
+   }
+   //---------------------- encode( char ) ----------------------------------
+   /**
+    * 2-bit code for a nucleotide, or -1 if it is not one of ACGT
+    */
+   public static int encode( char nuc )
+   {
+      switch ( nuc )
+      {
+         case 'A': case 'a': return 0;
+         case 'C': case 'c': return 1;
+         case 'G': case 'g': return 2;
+         case 'T': case 't': return 3;
+         default:            return -1;
+      }
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //------------------------ setShape( String ) -----------------------------
+   /**
+    * check shape and set the seed span and masks from it; return the
+    * number of bases that count
+    */
+   private int setShape( String shape )
+   {
+      checkShape( shape );
+      _shape = shape;
+      _k = shape.length();
+      int weight = 0;
+      for ( int i = 0; i < _k; i++ )
+      {
+         if ( shape.charAt( i ) == '1' )
+         {
+            _kmerMask |= 3L << ( 2 * i );
+            _careBits |= 1 << i;
+            weight++;
+         }
+      }
+      return weight;
+   }
+   //------------------------ allocateTable( int, int ) --------------------------
+   /**
+    * size the table to at most half full: there can be no more distinct
+    * seeds than reference positions, or than 4^weight. A table that would
+    * need more than 2^30 slots is refused; such a reference needs the
+    * minimizer or FM index.
+    */
+   private void allocateTable( int refLength, int weight )
+   {
+      long distinct = refLength;
+      if ( weight < 16 )
+         distinct = Math.min( distinct, 1L << ( 2 * weight ));
+      int bits = 4;
+      while ( ( 1L << bits ) < 2 * distinct )
+         bits++;
+      if ( bits > 30 )
+         throw new IllegalArgumentException( "Reference of " + refLength
+                     + " bases is too large for a k-mer index of weight " + weight
+                     + "; use a minimizer or FM index" );
+      _shift = 64 - bits;
+      _keys = new long[ 1 << bits ];
+      Arrays.fill( _keys, EMPTY );
+      _counts = new int[ 1 << bits ];
+   }
+   //------------------------ key( long ) -----------------------------
+   /**
+    * the table key of the seed that starts word: its bases under the
+    * shape, or for a canonical index the smaller of that and its reverse
+    * complement
+    */
+   private long key( long word )
+   {
+      long seed = word & _kmerMask;
+      if ( ! _canonical )
+         return seed;
+      return Math.min( seed, PackedDNA.reverseComplement( seed, _k ) & _kmerMask );
+   }
+   //------------------------ insert( long ) -----------------------------
+   /**
+    * return the slot for key, claiming an empty one if it is new
+    */
+   private int insert( long key )
+   {
+      int mask = _keys.length - 1;
+      int s = (int) (( key * MIXER ) >>> _shift );
+      while ( _keys[ s ] != key && _keys[ s ] != EMPTY )
+         s = ( s + 1 ) & mask;
+      _keys[ s ] = key;
+      return s;
+   }
+   //------------------------ find( long ) -----------------------------
+   /**
+    * return the slot for key or NOT_FOUND if it is not in the table
+    */
+   private int find( long key )
+   {
+      int mask = _keys.length - 1;
+      int s = (int) (( key * MIXER ) >>> _shift );
+      while ( _keys[ s ] != EMPTY )
+      {
+         if ( _keys[ s ] == key )
+            return s;
+         s = ( s + 1 ) & mask;
+      }
+      return NOT_FOUND;
+   }
+}
@@ -98,6 +98,7 @@
  * @author rdb
  * March 1, 2009
  */
+package prog9;
 
 public class List<K, T extends Comparable<K>>
 {
@@ -0,0 +1,292 @@
+/**
+ * MappedFasta -- a FASTA file that is memory mapped rather than read. The
+ *       file is scanned once to record where each sequence starts and how
+ *       its lines are laid out; after that, the composite of all the
+ *       sequences, end to end (the same sequence FastaFile.getComposite()
+ *       returns), is a CharSequence view that reads bases straight out of
+ *       the mapping, so no copy of the reference is ever made on the heap.
+ *
+ *       A sequence whose lines are not all the same length (except the
+ *       last) cannot be addressed by arithmetic; its bases are copied into
+ *       a byte array instead. Sequences with invalid characters or empty
+ *       ids are reported and left out, as FastaFile does.
+ *
+ *       Bases are returned in upper case, with '.' as '-', whatever the
+ *       file holds, so the view matches the composite of a FastaFile that
+ *       was read rather than mapped.
+ *
+ *       A single mapping is limited to 2GB, so larger files must be split.
+ *
+ *       Key public methods:
+ *           MappedFasta( String fileName ) -- map and index the file
+ *           int size() -- the number of sequences
+ *           String getHeader( int i ), int sequenceLength( int i )
+ *           int sequenceStart( int i ) -- position of the i-th sequence in
+ *                    the composite
+ *           charAt, length, subSequence -- the composite view
+ */
+package prog9;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+public class MappedFasta implements CharSequence
+{
+   //------------------------- instance variables ------------------------------
+   private MappedByteBuffer _map;
+   private int              _length = 0;    // composite length
+   private int              _count = 0;     // number of sequences
+
+   // per sequence layout, indexed by sequence number
+   private String[]  _headers = new String[ 16 ];
+   private int[]     _starts = new int[ 16 ];     // position in composite
+   private int[]     _lengths = new int[ 16 ];    // number of bases
+   private int[]     _offsets = new int[ 16 ];    // file offset of first base
+   private int[]     _lineLengths = new int[ 16 ]; // bases per full line
+   private int[]     _strides = new int[ 16 ];    // bytes per full line
+   private byte[][]  _copies = new byte[ 16 ][];  // bases of irregular sequences
+
+   //---------------------- constructor ----------------------------------------
+   /**
+    * Map the file and index its sequences; throws IOException if it cannot
+    * be mapped or is not in FASTA format
+    */
+   public MappedFasta( String fileName ) throws IOException
+   {
+      FileChannel channel = FileChannel.open( Paths.get( fileName ),
+                                              StandardOpenOption.READ );
+      try
+      {
+         if ( channel.size() > Integer.MAX_VALUE )
+            throw new IOException( fileName + " is too large to map" );
+         _map = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+      }
+      finally
+      {
+         channel.close();   // the mapping stays valid
+      }
+      if ( _map.limit() == 0 )
+         throw new IOException( fileName + " is empty." );
+      if ( _map.get( 0 ) != '>' )
+         throw new IOException( fileName + " does not start with '>'" );
+      indexSequences();
+   }
+   //---------------------- size() ----------------------------------------
+   /**
+    * number of sequences in the file
+    */
+   public int size()
+   {
+      return _count;
+   }
+   //---------------------- getHeader( int ) ----------------------------------
+   public String getHeader( int i )
+   {
+      return _headers[ i ];
+   }
+   //---------------------- sequenceStart( int ) -------------------------------
+   /**
+    * position of the first base of sequence i in the composite
+    */
+   public int sequenceStart( int i )
+   {
+      return _starts[ i ];
+   }
+   //---------------------- sequenceLength( int ) -------------------------------
+   public int sequenceLength( int i )
+   {
+      return _lengths[ i ];
+   }
+   //---------------------- length() ------------------------------------------
+   /**
+    * length of the composite: all the sequences
+    */
+   public int length()
+   {
+      return _length;
+   }
+   //---------------------- charAt( int ) ------------------------------------
+   /**
+    * the base at pos in upper case, with '.' as '-', as PackedDNA and so
+    * an unmapped FastaFile's composite have it
+    */
+   public char charAt( int pos )
+   {
+      // find the last sequence that starts at or before pos; empty
+      // sequences start where the next one does, so are never found
+      int lo = 0;
+      int hi = _count - 1;
+      while ( lo < hi )
+      {
+         int mid = ( lo + hi + 1 ) >>> 1;
+         if ( _starts[ mid ] <= pos )
+            lo = mid;
+         else
+            hi = mid - 1;
+      }
+      int local = pos - _starts[ lo ];
+      if ( _copies[ lo ] != null )
+         return normalize( _copies[ lo ][ local ] );
+      int line = local / _lineLengths[ lo ];
+      int col = local - line * _lineLengths[ lo ];
+      return normalize( _map.get( _offsets[ lo ] + line * _strides[ lo ] + col ));
+   }
+   //---------------------- subSequence( int, int ) -----------------------------
+   public CharSequence subSequence( int start, int end )
+   {
+      StringBuilder sub = new StringBuilder( end - start );
+      for ( int i = start; i < end; i++ )
+         sub.append( charAt( i ));
+      return sub.toString();
+   }
+   //---------------------- sequence( int ) -----------------------------
+   /**
+    * the bases of sequence i
+    */
+   public String sequence( int i )
+   {
+      return subSequence( _starts[ i ], _starts[ i ] + _lengths[ i ] ).toString();
+   }
+   //---------------------- toString() ------------------------------------
+   public String toString()
+   {
+      return subSequence( 0, _length ).toString();
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //------------------------ indexSequences() -------------------------------
+   /**
+    * One pass over the mapping records every sequence's header, first base,
+    * line length and line stride, and checks that every base is valid.
+    */
+   private void indexSequences()
+   {
+      int n = _map.limit();
+      int pos = 0;
+      while ( pos < n )
+      {
+         int headerEnd = lineEnd( pos );
+         String header = text( pos, headerEnd );
+         pos = headerEnd + 1;
+
+         int first = pos;
+         int lineLength = -1;
+         int stride = -1;
+         int bases = 0;
+         boolean regular = true;
+         boolean lastWasFull = true;   // previous line was a full line
+         char bad = 0;
+         while ( pos < n && _map.get( pos ) != '>' )
+         {
+            int end = lineEnd( pos );
+            int lineBases = end - pos;
+            if ( lineBases > 0 && _map.get( end - 1 ) == '\r' )
+               lineBases--;
+            for ( int i = pos; i < pos + lineBases && bad == 0; i++ )
+               if ( !DNASequence.isValid( (char) _map.get( i )))
+                  bad = (char) _map.get( i );
+
+            if ( lineLength < 0 )
+            {
+               lineLength = lineBases;
+               stride = end + 1 - pos;
+            }
+            else if ( !lastWasFull || lineBases > lineLength )
+               regular = false;
+            lastWasFull = lineBases == lineLength && end + 1 - pos == stride;
+            bases += lineBases;
+            pos = end + 1;
+         }
+
+         if ( bad != 0 )
+            System.err.println( "DNASequence ERROR:Bad character: " + bad
+                                  + "\nSequence input ignored." );
+         else if ( header.length() < 2 || header.charAt( 1 ) == ' ' )
+            System.err.println( "DNASequence ERROR:Empty sequence id."
+                                  + "\nSequence input ignored." );
+         else
+            addSequence( header, first, bases, lineLength, stride,
+                         regular ? null : copyBases( first, pos, bases ));
+      }
+   }
+   //---------------- addSequence( String, int, int, int, int, byte[] ) ---------
+   private void addSequence( String header, int offset, int bases,
+                             int lineLength, int stride, byte[] copy )
+   {
+      if ( _count == _headers.length )
+      {
+         int size = 2 * _count;
+         _headers = Arrays.copyOf( _headers, size );
+         _starts = Arrays.copyOf( _starts, size );
+         _lengths = Arrays.copyOf( _lengths, size );
+         _offsets = Arrays.copyOf( _offsets, size );
+         _lineLengths = Arrays.copyOf( _lineLengths, size );
+         _strides = Arrays.copyOf( _strides, size );
+         _copies = Arrays.copyOf( _copies, size );
+      }
+      _headers[ _count ] = header;
+      _starts[ _count ] = _length;
+      _lengths[ _count ] = bases;
+      _offsets[ _count ] = offset;
+      _lineLengths[ _count ] = Math.max( 1, lineLength );
+      _strides[ _count ] = stride;
+      _copies[ _count ] = copy;
+      _count++;
+      _length += bases;
+   }
+   //------------------------ copyBases( int, int, int ) -----------------------
+   /**
+    * copy the bases between file offsets from and to, skipping line ends
+    */
+   private byte[] copyBases( int from, int to, int bases )
+   {
+      byte[] copy = new byte[ bases ];
+      int n = 0;
+      for ( int i = from; i < to; i++ )
+      {
+         byte b = _map.get( i );
+         if ( b != '\n' && b != '\r' )
+            copy[ n++ ] = b;
+      }
+      return copy;
+   }
+   //------------------------ lineEnd( int ) -------------------------------
+   /**
+    * offset of the newline that ends the line starting at pos, or the end
+    * of the file
+    */
+   private int lineEnd( int pos )
+   {
+      int n = _map.limit();
+      while ( pos < n && _map.get( pos ) != '\n' )
+         pos++;
+      return pos;
+   }
+   //------------------------ text( int, int ) -------------------------------
+   /**
+    * the bytes from start to end as a String, without a trailing '\r'
+    */
+   private String text( int start, int end )
+   {
+      if ( end > start && _map.get( end - 1 ) == '\r' )
+         end--;
+      byte[] bytes = new byte[ end - start ];
+      for ( int i = start; i < end; i++ )
+         bytes[ i - start ] = _map.get( i );
+      return new String( bytes, StandardCharsets.ISO_8859_1 );
+   }
+   //------------------------ normalize( byte ) -------------------------------
+   /**
+    * a base from the file as PackedDNA stores it: upper case, '.' as '-'
+    */
+   private static char normalize( byte base )
+   {
+      if ( base >= 'a' && base <= 'z' )
+         return (char) ( base - 'a' + 'A' );
+      return base == '.' ? '-' : (char) base;
+   }
+}
@@ -0,0 +1,101 @@
+/**
+ * MatePairs -- an iterator over the read pairs of paired-end data. The
+ *       mates come from two files, read i of one paired with read i of the
+ *       other, or from one file in which they are interleaved. Each call
+ *       of next() returns the first read of a pair with its mate linked to
+ *       it ( DNASequence.getMate() ), so the Aligner can align the two
+ *       together; the mates themselves are not returned.
+ *
+ *       If one file has more reads than the other, an error is printed
+ *       and the reads left over are returned unpaired.
+ *
+ *       Key public methods:
+ *           MatePairs( Iterator<DNASequence> first, Iterator<DNASequence> second )
+ *           MatePairs( Iterator<DNASequence> interleaved )
+ *           boolean hasNext(), DNASequence next() -- the usual iteration
+ *           static void link( DNASequence first, DNASequence second )
+ *           static void link( FastaFile first, FastaFile second ) -- pair
+ *                    the reads of two files already in memory
+ */
+package prog9;
+
+import java.util.*;
+
+public class MatePairs implements Iterator<DNASequence>
+{
+   //------------------------- instance variables ------------------------------
+   private Iterator<DNASequence>  _first;
+   private Iterator<DNASequence>  _second;   // same as _first if interleaved
+   private boolean                _reported = false;
+
+   //---------------------- constructors ----------------------------------------
+   /**
+    * pair the reads of first with those of second, in order
+    */
+   public MatePairs( Iterator<DNASequence> first, Iterator<DNASequence> second )
+   {
+      _first = first;
+      _second = second;
+   }
+   /**
+    * pair each read with the one that follows it
+    */
+   public MatePairs( Iterator<DNASequence> interleaved )
+   {
+      this( interleaved, interleaved );
+   }
+   //------------------- hasNext() -----------------------------------
+   public boolean hasNext()
+   {
+      return _first.hasNext() || _second.hasNext();
+   }
+   //------------------- next() ---------------------------------------
+   /**
+    * the next pair's first read, with its mate linked
+    */
+   public DNASequence next()
+   {
+      if ( ! _first.hasNext() )
+      {
+         unmatched();
+         return _second.next();
+      }
+      DNASequence read = _first.next();
+      if ( _second.hasNext() )
+         link( read, _second.next() );
+      else
+         unmatched();
+      return read;
+   }
+   //------------------- link( DNASequence, DNASequence ) -----------------
+   /**
+    * make first and second mates
+    */
+   public static void link( DNASequence first, DNASequence second )
+   {
+      first.setMate( second, true );
+      second.setMate( first, false );
+   }
+   //------------------- link( FastaFile, FastaFile ) -----------------
+   /**
+    * make read i of first and read i of second mates, for every i
+    */
+   public static void link( FastaFile first, FastaFile second )
+   {
+      if ( first.size() != second.size() )
+         System.err.println( "***Error: mate files have " + first.size() + " and "
+                             + second.size() + " reads; extra reads are unpaired" );
+      int n = Math.min( first.size(), second.size() );
+      for ( int i = 0; i < n; i++ )
+         link( first.get( i ), second.get( i ));
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //------------------- unmatched() -----------------------------------
+   private void unmatched()
+   {
+      if ( ! _reported )
+         System.err.println( "***Error: mates do not pair up; extra reads are unpaired" );
+      _reported = true;
+   }
+}
@@ -0,0 +1,262 @@
+/**
+ * MinimizerIndex -- a sparse SeedIndex for large references. Of every w
+ *       consecutive seeds of the reference only the minimizer, the one
+ *       with the smallest hash, is indexed, so the index holds about
+ *       2 / ( w + 1 ) of the positions a KmerIndex holds. A read is seeded
+ *       at its own minimizers: any stretch of w seeds the read shares
+ *       exactly with the reference has the same minimizer in both.
+ *
+ *       Each indexed seed is one long, its key in the high 32 bits and
+ *       its reference position in the low 32, in a single sorted array;
+ *       a lookup is a binary search and the hits for a key are the run of
+ *       entries that share it, positions increasing. Keys are the bases
+ *       of the seed shape that count, 2 bits each, so the shape may have
+ *       at most 15 of them.
+ *
+ *       Key public methods:
+ *           MinimizerIndex( PackedDNA ref, String shape, int w ) -- build
+ *                    the index of the minimizers of windows of w seeds
+ *           int seedPositions( PackedDNA read, int stride, int[] positions )
+ *                    -- the read's minimizers; stride is ignored
+ *           long findHits( PackedDNA dna, int start ), int hitAt( int h )
+ *                    -- as for SeedIndex
+ *           MinimizerIndex( IndexFile.Reader in ), void save( IndexFile.Writer out )
+ *                    -- load and save the index
+ */
+package prog9;
+
+import java.io.IOException;
+import java.util.*;
+
+public class MinimizerIndex implements SeedIndex
+{
+   //------------------------- class variables ---------------------------------
+   private final static long   MIXER = 0x9E3779B97F4A7C15L;
+   private final static int    MAX_WEIGHT = 15;   // 30-bit keys
+
+   //------------------------- instance variables ------------------------------
+   private int     _k;         // span of the seed, in bases
+   private String  _shape;
+   private int     _w;         // seeds per window
+   private long    _kmerMask;  // 2 bits set for each base of the shape that counts
+   private int     _careBits;  // 1 bit set for each base of the shape that counts
+   private int[]   _care;      // the offsets of those bases
+   private long[]  _entries;   // key << 32 | position, sorted
+   private ThreadLocal<long[][]> _ring = new ThreadLocal<long[][]>()
+   {
+      protected long[][] initialValue()   // minimizers() work space
+      {
+         return new long[ 2 ][ _w + 1 ];
+      }
+   };
+
+   //---------------------- constructor ----------------------------------------
+   /**
+    * Build the index of the minimizers of every window of w seeds of the
+    * given shape
+    */
+   public MinimizerIndex( PackedDNA ref, String shape, int w )
+   {
+      setShape( shape );
+      if ( w < 1 )
+         throw new IllegalArgumentException( "Invalid minimizer window: " + w );
+      _w = w;
+
+      // count, then fill and sort
+      int n = minimizers( ref, null );
+      int[] positions = new int[ n ];
+      minimizers( ref, positions );
+      _entries = new long[ n ];
+      for ( int i = 0; i < n; i++ )
+         _entries[ i ] = (long) compact( ref.word( positions[ i ] )) << 32
+                         | positions[ i ];
+      Arrays.sort( _entries );
+   }
+   /**
+    * Load an index saved by save()
+    */
+   public MinimizerIndex( IndexFile.Reader in )
+   {
+      setShape( in.getString() );
+      _w = in.getInt();
+      _entries = in.getLongs();
+   }
+   //---------------------- save( IndexFile.Writer ) ----------------------------
+   public void save( IndexFile.Writer out ) throws IOException
+   {
+      out.putString( _shape );
+      out.putInt( _w );
+      out.putLongs( _entries );
+   }
+   //---------------------- kmerLength() ----------------------------------------
+   public int kmerLength()
+   {
+      return _k;
+   }
+   //---------------------- seedMask() ----------------------------------------
+   public long seedMask()
+   {
+      return _kmerMask & PackedDNA.EVEN_BITS;
+   }
+   //---------------------- size() ----------------------------------------
+   /**
+    * the number of indexed seeds
+    */
+   public int size()
+   {
+      return _entries.length;
+   }
+   //---------------------- seedPositions( PackedDNA, int, int[] ) --------------
+   /**
+    * the minimizers of the read
+    */
+   public int seedPositions( PackedDNA read, int stride, int[] positions )
+   {
+      return minimizers( read, positions );
+   }
+   //---------------------- lookup( PackedDNA, int ) -------------------------
+   /**
+    * return the index of the first entry for the seed starting at
+    * dna[ start ], NOT_FOUND if it is not indexed, or INVALID if it runs
+    * off the end of dna or has a character other than ACGT where the
+    * shape counts
+    */
+   public int lookup( PackedDNA dna, int start )
+   {
+      if ( start < 0 || start + _k > dna.length()
+           || ( dna.specialBits( start ) & _careBits ) != 0 )
+         return INVALID;
+      long key = (long) compact( dna.word( start )) << 32;
+      int slot = search( key, 0 );
+      if ( slot == _entries.length || ( _entries[ slot ] & ~0xFFFFFFFFL ) != key )
+         return NOT_FOUND;
+      return slot;
+   }
+   //---------------------- findHits( PackedDNA, int ) -------------------------
+   public long findHits( PackedDNA dna, int start )
+   {
+      int first = lookup( dna, start );
+      if ( first < 0 )
+         return first;
+      long next = (( _entries[ first ] >>> 32 ) + 1 ) << 32;
+      return (long) first << 32 | search( next, first );
+   }
+   //---------------------- hitAt( int ) ----------------------------------
+   public int hitAt( int h )
+   {
+      return (int) _entries[ h ];
+   }
+   //---------------------- sortedHits() ----------------------------------
+   /**
+    * entries of a key are sorted by position
+    */
+   public boolean sortedHits()
+   {
+      return true;
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //------------------------ setShape( String ) ---------------------
+   /**
+    * check shape and set the seed span, masks and offsets from it
+    */
+   private void setShape( String shape )
+   {
+      KmerIndex.checkShape( shape );
+      _shape = shape;
+      _k = shape.length();
+      int weight = 0;
+      for ( int i = 0; i < _k; i++ )
+         if ( shape.charAt( i ) == '1' )
+            weight++;
+      if ( weight > MAX_WEIGHT )
+         throw new IllegalArgumentException( "Seed shape too heavy for minimizers: "
+                                             + shape );
+      _care = new int[ weight ];
+      for ( int i = 0, c = 0; i < _k; i++ )
+      {
+         if ( shape.charAt( i ) == '1' )
+         {
+            _kmerMask |= 3L << ( 2 * i );
+            _careBits |= 1 << i;
+            _care[ c++ ] = i;
+         }
+      }
+   }
+   //------------------------ minimizers( PackedDNA, int[] ) ---------------------
+   /**
+    * Find the minimizer of each window of _w seeds in dna, with a sliding
+    * window minimum; a seed with N where the shape counts breaks the
+    * windows. Store the positions, each once, in out unless it is null;
+    * return how many there are. The window ring is kept per thread, since
+    * this runs for every read.
+    */
+   private int minimizers( PackedDNA dna, int[] out )
+   {
+      long[][] ring = _ring.get();
+      long[] hashes = ring[ 0 ];   // ring of candidate minimums,
+      long[] starts = ring[ 1 ];   // hashes increasing
+      int head = 0;
+      int size = 0;
+      int run = 0;           // valid seeds in a row
+      int last = -1;         // last minimizer stored
+      int count = 0;
+      for ( int p = 0; p + _k <= dna.length(); p++ )
+      {
+         if ( ( dna.specialBits( p ) & _careBits ) != 0 )
+         {
+            run = size = 0;
+            continue;
+         }
+         long hash = ( dna.word( p ) & _kmerMask ) * MIXER;
+         while ( size > 0 && hashes[ ( head + size - 1 ) % hashes.length ] > hash )
+            size--;
+         int tail = ( head + size ) % hashes.length;
+         hashes[ tail ] = hash;
+         starts[ tail ] = p;
+         size++;
+         if ( starts[ head ] <= p - _w )
+         {
+            head = ( head + 1 ) % hashes.length;
+            size--;
+         }
+         if ( ++run >= _w && starts[ head ] != last )
+         {
+            last = (int) starts[ head ];
+            if ( out != null )
+               out[ count ] = last;
+            count++;
+         }
+      }
+      return count;
+   }
+   //------------------------ compact( long ) -----------------------------
+   /**
+    * the codes of the bases of the shape that count, packed together
+    */
+   private int compact( long word )
+   {
+      int key = 0;
+      for ( int c = 0; c < _care.length; c++ )
+         key |= (int) (( word >>> ( 2 * _care[ c ] )) & 3 ) << ( 2 * c );
+      return key;
+   }
+   //------------------------ search( long, int ) -----------------------------
+   /**
+    * the index of the first entry at or after from that is >= key
+    */
+   private int search( long key, int from )
+   {
+      int lo = from;
+      int hi = _entries.length;
+      while ( lo < hi )
+      {
+         int mid = ( lo + hi ) >>> 1;
+         if ( _entries[ mid ] < key )
+            lo = mid + 1;
+         else
+            hi = mid;
+      }
+      return lo;
+   }
+}
@@ -0,0 +1,358 @@
+/**
+ * PackedDNA -- a nucleotide sequence stored 2 bits per base, 32 bases to
+ *       a long (4 bases per byte). Bases that are not A, C, G or T are
+ *       marked in a side bitmap, and their 2-bit code then selects one of
+ *       the special characters N, X, - (gap) or * (separator).
+ *
+ *       Sequences are stored in upper case, and '.' is stored as the
+ *       equivalent gap character '-'.
+ *
+ *       Because a whole word holds 32 bases, two sequences can be compared
+ *       32 bases at a time: mismatchMask returns a word with one bit set
+ *       for each position that differs.
+ *
+ *       Key public methods:
+ *           PackedDNA( CharSequence dna ) -- pack a sequence
+ *           char charAt( int i ) -- the base at i, as a character
+ *           int code( int i ) -- the 2-bit code of the base at i
+ *           boolean matches( int i, PackedDNA other, int j ) -- base
+ *                    equality
+ *           long word( int i ) -- the codes of bases i to i + 31
+ *           long mismatchMask( int i, PackedDNA other, int j ) -- the
+ *                    differences between 32 bases of each sequence
+ *           void reverseComplement( PackedDNA out ) -- put the reverse
+ *                    complement in out, reusing its storage
+ *           static long reverseComplement( long word, int len ) -- the
+ *                    reverse complement of the first len bases of a word
+ *           long checksum() -- a CRC32 of the sequence
+ */
+package prog9;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+public class PackedDNA implements CharSequence
+{
+   //------------------------- class variables ---------------------------------
+   private final static String  bases    = "ACGT";
+   private final static String  specials = "NX-*";
+
+   public  final static long    EVEN_BITS = 0x5555555555555555L;
+
+   //------------------------- instance variables ------------------------------
+   private long[]  _words;    // 2-bit codes, base i in bits 2*(i%32) of word i/32
+   private long[]  _special;  // bit i set if base i is not ACGT; null if none
+   private int     _length = 0;
+
+   //---------------------- constructors ----------------------------------------
+   /**
+    * Create an empty sequence with room for capacity bases
+    */
+   public PackedDNA( int capacity )
+   {
+      _words = new long[ Math.max( 1, ( capacity + 31 ) >> 5 ) ];
+   }
+   /**
+    * Pack the characters of dna
+    */
+   public PackedDNA( CharSequence dna )
+   {
+      this( dna.length() );
+      append( dna );
+   }
+   //---------------------- append( char ) ------------------------------------
+   /**
+    * add one base to the end of the sequence; throws IllegalArgumentException
+    * if it is not a valid nucleotide character
+    */
+   public void append( char nuc )
+   {
+      int code = KmerIndex.encode( nuc );
+      boolean special = code < 0;
+      if ( special )
+      {
+         code = specials.indexOf( nuc == '.' ? '-' : Character.toUpperCase( nuc ));
+         if ( code < 0 )
+            throw new IllegalArgumentException( "Bad character: " + nuc );
+      }
+      appendCode( code, special );
+   }
+   //---------------------- append( CharSequence ) ------------------------------
+   /**
+    * add all the bases in dna to the end of the sequence
+    */
+   public void append( CharSequence dna )
+   {
+      ensureCapacity( _length + dna.length() );
+      if ( dna instanceof PackedDNA )
+      {
+         PackedDNA packed = (PackedDNA) dna;
+         for ( int i = 0; i < packed.length(); i++ )
+            appendCode( packed.code( i ), packed.isSpecial( i ));
+      }
+      else
+      {
+         for ( int i = 0; i < dna.length(); i++ )
+            append( dna.charAt( i ));
+      }
+   }
+   //---------------------- length() ------------------------------------------
+   /**
+    * the number of bases
+    */
+   public int length()
+   {
+      return _length;
+   }
+   //---------------------- charAt( int ) ------------------------------------
+   /**
+    * the base at position i as a character
+    */
+   public char charAt( int i )
+   {
+      if ( isSpecial( i ))
+         return specials.charAt( code( i ));
+      return bases.charAt( code( i ));
+   }
+   //---------------------- code( int ) ------------------------------------
+   /**
+    * the 2-bit code of the base at position i: A=0, C=1, G=2, T=3 unless
+    * the base is special
+    */
+   public int code( int i )
+   {
+      return (int) ( _words[ i >> 5 ] >>> (( i & 31 ) << 1 )) & 3;
+   }
+   //---------------------- isSpecial( int ) ------------------------------------
+   /**
+    * true if the base at i is not one of ACGT
+    */
+   public boolean isSpecial( int i )
+   {
+      return _special != null && ( _special[ i >> 6 ] & ( 1L << i )) != 0;
+   }
+   //---------------------- matches( int, PackedDNA, int ) ----------------------
+   /**
+    * true if the base at i is the same as the base at j in other
+    */
+   public boolean matches( int i, PackedDNA other, int j )
+   {
+      return code( i ) == other.code( j ) && isSpecial( i ) == other.isSpecial( j );
+   }
+   //---------------------- word( int ) ------------------------------------
+   /**
+    * the 2-bit codes of the 32 bases starting at i, base i in the low bits;
+    * positions past the end read as 0
+    */
+   public long word( int i )
+   {
+      int w = i >> 5;
+      if ( w >= _words.length )
+         return 0;
+      int shift = ( i & 31 ) << 1;
+      long result = _words[ w ] >>> shift;
+      if ( shift != 0 && w + 1 < _words.length )
+         result |= _words[ w + 1 ] << ( 64 - shift );
+      return result;
+   }
+   //---------------------- specialBits( int ) ------------------------------------
+   /**
+    * the special flags of the 32 bases starting at i, base i in bit 0
+    */
+   public int specialBits( int i )
+   {
+      if ( _special == null )
+         return 0;
+      int w = i >> 6;
+      if ( w >= _special.length )
+         return 0;
+      int shift = i & 63;
+      long result = _special[ w ] >>> shift;
+      if ( shift > 32 && w + 1 < _special.length )
+         result |= _special[ w + 1 ] << ( 64 - shift );
+      return (int) result;
+   }
+   //---------------------- hasSpecial( int, int ) -----------------------------
+   /**
+    * true if any of the len (at most 32) bases starting at i is special
+    */
+   public boolean hasSpecial( int i, int len )
+   {
+      return ( specialBits( i ) & lowBits( len )) != 0;
+   }
+   //------------------ mismatchMask( int, PackedDNA, int ) ---------------------
+   /**
+    * Compare the 32 bases starting at i with the 32 starting at j in other.
+    * Returns a word with bit 2k set if the bases at offset k differ, so
+    * Long.bitCount gives the number of mismatches and
+    * Long.numberOfTrailingZeros / 2 the offset of the first one.
+    * Positions past the end of either sequence must be masked by the caller.
+    */
+   public long mismatchMask( int i, PackedDNA other, int j )
+   {
+      long x = word( i ) ^ other.word( j );
+      long diff = ( x | ( x >>> 1 )) & EVEN_BITS;
+      int s = specialBits( i ) ^ other.specialBits( j );
+      if ( s != 0 )
+         diff |= spread( s );
+      return diff;
+   }
+   //------------------ mismatches( int, PackedDNA, int, int ) ---------------------
+   /**
+    * the number of positions that differ in the len bases starting at i and
+    * at j in other
+    */
+   public int mismatches( int i, PackedDNA other, int j, int len )
+   {
+      int count = 0;
+      for ( ; len >= 32; i += 32, j += 32, len -= 32 )
+         count += Long.bitCount( mismatchMask( i, other, j ));
+      if ( len > 0 )
+         count += Long.bitCount( mismatchMask( i, other, j ) & lowBases( len ));
+      return count;
+   }
+   //---------------------- subSequence( int, int ) -----------------------------
+   public CharSequence subSequence( int start, int end )
+   {
+      StringBuilder sub = new StringBuilder( end - start );
+      for ( int i = start; i < end; i++ )
+         sub.append( charAt( i ));
+      return sub.toString();
+   }
+   //---------------------- toString() ------------------------------------
+   public String toString()
+   {
+      return subSequence( 0, _length ).toString();
+   }
+   //---------------------- reverseComplement( PackedDNA ) ---------------------
+   /**
+    * Replace the contents of out with the reverse complement of this
+    * sequence, 32 bases at a time; out allocates only if it must grow.
+    * A base's complement is its code xor 3 ( A-T, C-G ); special
+    * characters are their own complements.
+    */
+   public void reverseComplement( PackedDNA out )
+   {
+      int n = _length;
+      int oldWords = ( out._length + 31 ) >> 5;
+      out._length = 0;
+      out.ensureCapacity( n );
+      if ( out._special != null )
+         Arrays.fill( out._special, 0, Math.min( out._special.length,
+                                                 ( oldWords + 1 ) >> 1 ), 0 );
+      else if ( _special != null )
+         out._special = new long[ ( out._words.length + 1 ) >> 1 ];
+      int nWords = ( n + 31 ) >> 5;
+      for ( int j = 0; j < nWords; j++ )
+      {
+         int m = Math.min( 32, n - 32 * j );     // bases in output word j
+         int from = n - 32 * j - m;             // first of them in this
+         long x = reverseBases( word( from )) >>> ( 2 * ( 32 - m ));
+         int special = Integer.reverse( specialBits( from )) >>> ( 32 - m );
+         out._words[ j ] = x ^ ( lowBases( m ) & ~( spread( special ) * 3 ));
+         if ( special != 0 )
+            out._special[ j >> 1 ] |= ( special & 0xFFFFFFFFL ) << (( j & 1 ) << 5 );
+      }
+      if ( oldWords > nWords )
+         Arrays.fill( out._words, nWords, oldWords, 0 );
+      out._length = n;
+   }
+   //---------------------- reverseComplement( long, int ) ---------------------
+   /**
+    * the reverse complement of the first len (<= 32) bases of a word of
+    * 2-bit codes, as word() returns them; the rest of the result is 0
+    */
+   public static long reverseComplement( long word, int len )
+   {
+      return ( reverseBases( word ) >>> ( 2 * ( 32 - len ))) ^ lowBases( len );
+   }
+   //---------------------- checksum() ------------------------------------
+   /**
+    * a CRC32 of the packed bases and the special bitmap, to tell whether
+    * a saved index was built from this sequence
+    */
+   public long checksum()
+   {
+      int nWords = ( _length + 31 ) >> 5;
+      int nSpecial = _special == null ? 0 : ( _length + 63 ) >> 6;
+      ByteBuffer bytes = ByteBuffer.allocate( 8 * ( nWords + nSpecial ));
+      bytes.asLongBuffer().put( _words, 0, nWords );
+      if ( nSpecial > 0 )
+      {
+         bytes.position( 8 * nWords );
+         bytes.asLongBuffer().put( _special, 0, nSpecial );
+      }
+      CRC32 crc = new CRC32();
+      crc.update( bytes.array() );
+      return crc.getValue();
+   }
+   //---------------------- lowBases( int ) ------------------------------------
+   /**
+    * a mismatch mask that selects only the first len (<= 32) bases
+    */
+   public static long lowBases( int len )
+   {
+      return len >= 32 ? -1L : ( 1L << ( len << 1 )) - 1;
+   }
+   //---------------------- spread( int ) ------------------------------
+   /**
+    * move bit k of a 32-bit flag word to bit 2k of a long
+    */
+   public static long spread( int bits )
+   {
+      long x = bits & 0xFFFFFFFFL;
+      x = ( x | ( x << 16 )) & 0x0000FFFF0000FFFFL;
+      x = ( x | ( x << 8 ))  & 0x00FF00FF00FF00FFL;
+      x = ( x | ( x << 4 ))  & 0x0F0F0F0F0F0F0F0FL;
+      x = ( x | ( x << 2 ))  & 0x3333333333333333L;
+      x = ( x | ( x << 1 ))  & EVEN_BITS;
+      return x;
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //---------------------- appendCode( int, boolean ) -------------------------
+   private void appendCode( int code, boolean special )
+   {
+      ensureCapacity( _length + 1 );
+      _words[ _length >> 5 ] |= (long) code << (( _length & 31 ) << 1 );
+      if ( special )
+      {
+         if ( _special == null )
+            _special = new long[ ( _words.length + 1 ) >> 1 ];
+         _special[ _length >> 6 ] |= 1L << _length;
+      }
+      _length++;
+   }
+   //---------------------- ensureCapacity( int ) ------------------------------
+   private void ensureCapacity( int bases )
+   {
+      int words = ( bases + 31 ) >> 5;
+      if ( words > _words.length )
+      {
+         long[] bigger = new long[ Math.max( words, 2 * _words.length ) ];
+         System.arraycopy( _words, 0, bigger, 0, _words.length );
+         _words = bigger;
+      }
+      if ( _special != null && ( _words.length + 1 ) >> 1 > _special.length )
+      {
+         long[] bigger = new long[ ( _words.length + 1 ) >> 1 ];
+         System.arraycopy( _special, 0, bigger, 0, _special.length );
+         _special = bigger;
+      }
+   }
+   //---------------------- reverseBases( long ) ------------------------------
+   /**
+    * reverse the order of the 32 2-bit codes in a word
+    */
+   private static long reverseBases( long x )
+   {
+      x = Long.reverse( x );
+      return (( x >>> 1 ) & EVEN_BITS ) | (( x & EVEN_BITS ) << 1 );
+   }
+   //---------------------- lowBits( int ) ------------------------------
+   private static int lowBits( int len )
+   {
+      return len >= 32 ? -1 : ( 1 << len ) - 1;
+   }
+}
@@ -0,0 +1,118 @@
+/**
+ * SeedIndex -- finds the places in a reference where the seeds of a read
+ *       occur exactly. The Aligner asks the index which read positions to
+ *       seed from, looks each seed up, and groups the hits by diagonal.
+ *
+ *       Key public methods:
+ *           int seedPositions( PackedDNA read, int stride, int[] positions )
+ *                    -- the read positions to look up
+ *           long findHits( PackedDNA dna, int start ) -- the range of hit
+ *                    indexes for the seed that starts at dna[ start ],
+ *                    first << 32 | end, NOT_FOUND if it is not in the
+ *                    reference or INVALID if it cannot be looked up ( it
+ *                    has a character other than ACGT )
+ *           int hitAt( int h ) -- the reference position of hit h
+ *           boolean sortedHits() -- true if the positions of the hits of
+ *                    each seed increase, so a window can be binary searched
+ *           boolean canonical() -- true if a seed and its reverse
+ *                    complement are one entry, so findHits finds the hits
+ *                    of both strands and seedStrand and hitStrand tell
+ *                    them apart
+ *           void save( IndexFile.Writer out ) -- write the index so that
+ *                    IndexFile can load it again
+ */
+package prog9;
+
+import java.io.IOException;
+
+public interface SeedIndex
+{
+   public final static int NOT_FOUND = -1;  // lookup: seed not in reference
+   public final static int INVALID   = -2;  // lookup: seed is not ACGT only
+
+   public final static int FORWARD = 0;     // strands of canonical seeds
+   public final static int REVERSE = 1;
+   public final static int BOTH    = 2;     // a seed that is its own reverse complement
+
+   //---------------------- kmerLength() ----------------------------------------
+   /**
+    * the number of bases a seed spans
+    */
+   public int kmerLength();
+
+   //---------------------- seedMask() ----------------------------------------
+   /**
+    * a PackedDNA.mismatchMask mask of the bases of a seed that must match
+    */
+   public long seedMask();
+
+   //---------------------- seedPositions( PackedDNA, int, int[] ) --------------
+   /**
+    * Put the read positions whose seeds should be looked up in positions,
+    * in increasing order, and return how many there are. positions must
+    * have room for read.length() entries. stride is the requested distance
+    * between seeds, which an index that picks its own seeds may ignore.
+    * By default, a seed every stride bases of the read, from the start.
+    */
+   public default int seedPositions( PackedDNA read, int stride, int[] positions )
+   {
+      int n = 0;
+      for ( int i = 0; i < read.length() - kmerLength(); i += stride )
+         positions[ n++ ] = i;
+      return n;
+   }
+
+   //---------------------- findHits( PackedDNA, int ) -------------------------
+   /**
+    * the hits of the seed that starts at dna[ start ]: hit indexes
+    * ( hits >>> 32 ) up to but not including (int) hits, or NOT_FOUND or
+    * INVALID
+    */
+   public long findHits( PackedDNA dna, int start );
+
+   //---------------------- hitAt( int ) ----------------------------------
+   public int hitAt( int h );
+
+   //---------------------- sortedHits() ----------------------------------
+   /**
+    * true if hitAt( h ) increases with h across the hits of one seed
+    */
+   public boolean sortedHits();
+
+   //---------------------- canonical() ----------------------------------
+   /**
+    * true if the index keeps each seed and its reverse complement under
+    * one entry: then the hits of a seed include those of its reverse
+    * complement, and a hit is on the seed's own strand if hitStrand is
+    * seedStrand, or on both if seedStrand is BOTH
+    */
+   public default boolean canonical()
+   {
+      return false;
+   }
+   //---------------------- seedStrand( PackedDNA, int ) -------------------------
+   /**
+    * for a canonical index, which strand of its entry the seed at
+    * dna[ start ] is: FORWARD, REVERSE or BOTH
+    */
+   public default int seedStrand( PackedDNA dna, int start )
+   {
+      return FORWARD;
+   }
+   //---------------------- hitStrand( int ) ----------------------------------
+   /**
+    * for a canonical index, which strand of its entry hit h is: FORWARD
+    * or REVERSE
+    */
+   public default int hitStrand( int h )
+   {
+      return FORWARD;
+   }
+
+   //---------------------- save( IndexFile.Writer ) ----------------------------
+   /**
+    * write the index; each index class has a constructor that reads back
+    * what it wrote from an IndexFile.Reader
+    */
+   public void save( IndexFile.Writer out ) throws IOException;
+}
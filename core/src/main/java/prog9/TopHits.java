@@ -0,0 +1,201 @@
+/**
+ * TopHits -- the k best scoring hits of one read. The hits are kept in a
+ *       bounded heap of parallel int arrays, weakest hit at the root, so
+ *       scoring a candidate allocates nothing: a hit that beats the root
+ *       replaces it, anything weaker is dropped, and each offer costs at
+ *       most log k. Ties go to the hit offered first.
+ *
+ *       Hits on the same strand whose read starts are within sameLocus
+ *       bases of each other are one alignment seen from nearby diagonals
+ *       ( a gapped extender scores every diagonal around an indel about
+ *       the same ), so only the better of them is kept; otherwise a read
+ *       would look like a repeat of itself.
+ *
+ *       Like DiagonalMap, one TopHits is reused for every read and is not
+ *       thread safe; each thread needs its own.
+ *
+ *       Key public methods:
+ *           void clear( int k ) -- forget all hits and keep at most k
+ *           void offer( int refPos, int readPos, int score, boolean reverse )
+ *                    -- a seed hit at ref[ refPos ], read[ readPos ] and its
+ *                    score
+ *           int sort() -- put the hits in order, best first, and return
+ *                    how many there are
+ *           int refPos( int i ), int readPos( int i ), int score( int i ),
+ *           boolean isReverse( int i ), int start( int i ) -- hit i
+ */
+package prog9;
+
+public class TopHits
+{
+   //------------------------- class variables ---------------------------------
+   public final static int     sameLocus = 8;
+
+   //------------------------- instance variables ------------------------------
+   private int       _capacity = 0;
+   private int       _size = 0;
+   private int       _offers = 0;   // numbers the hits, for ties
+   private int[]     _refPos = new int[ 0 ];
+   private int[]     _readPos = new int[ 0 ];
+   private int[]     _score = new int[ 0 ];
+   private int[]     _order = new int[ 0 ];
+   private boolean[] _reverse = new boolean[ 0 ];
+
+   //---------------------- clear( int ) ----------------------------------
+   /**
+    * forget all hits; keep the best k of those offered from now on
+    */
+   public void clear( int k )
+   {
+      _capacity = Math.max( 1, k );
+      if ( _score.length < _capacity )
+      {
+         _refPos = new int[ _capacity ];
+         _readPos = new int[ _capacity ];
+         _score = new int[ _capacity ];
+         _order = new int[ _capacity ];
+         _reverse = new boolean[ _capacity ];
+      }
+      _size = 0;
+      _offers = 0;
+   }
+   //---------------------- offer( int, int, int, boolean ) -------------------
+   /**
+    * consider the hit at ref[ refPos ], read[ readPos ] with score; the read
+    * is reverse complemented if reverse is true
+    */
+   public void offer( int refPos, int readPos, int score, boolean reverse )
+   {
+      int order = _offers++;
+      int start = refPos - readPos;
+      for ( int i = 0; i < _size; i++ )
+      {
+         if ( _reverse[ i ] == reverse
+              && Math.abs( _refPos[ i ] - _readPos[ i ] - start ) <= sameLocus )
+         {
+            if ( score > _score[ i ] )
+            {
+               set( i, refPos, readPos, score, order, reverse );
+               siftDown( i, _size );
+            }
+            return;
+         }
+      }
+      if ( _size < _capacity )
+      {
+         set( _size, refPos, readPos, score, order, reverse );
+         siftUp( _size++ );
+      }
+      else if ( score > _score[ 0 ] )
+      {
+         set( 0, refPos, readPos, score, order, reverse );
+         siftDown( 0, _size );
+      }
+   }
+   //---------------------- size() ----------------------------------
+   public int size()
+   {
+      return _size;
+   }
+   //---------------------- sort() ----------------------------------
+   /**
+    * Order the hits best first, for the accessors, and return how many
+    * there are. No more hits may be offered until the next clear().
+    */
+   public int sort()
+   {
+      for ( int end = _size - 1; end > 0; end-- )
+      {
+         swap( 0, end );          // the weakest left goes to the back
+         siftDown( 0, end );
+      }
+      return _size;
+   }
+   //---------------------- refPos( int ) ----------------------------------
+   public int refPos( int i )
+   {
+      return _refPos[ i ];
+   }
+   //---------------------- readPos( int ) ----------------------------------
+   public int readPos( int i )
+   {
+      return _readPos[ i ];
+   }
+   //---------------------- score( int ) ----------------------------------
+   public int score( int i )
+   {
+      return _score[ i ];
+   }
+   //---------------------- isReverse( int ) ----------------------------------
+   public boolean isReverse( int i )
+   {
+      return _reverse[ i ];
+   }
+   //---------------------- start( int ) ----------------------------------
+   /**
+    * reference position of the start of the read for hit i
+    */
+   public int start( int i )
+   {
+      return _refPos[ i ] - _readPos[ i ];
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //------------------------ weaker( int, int ) -----------------------------
+   /**
+    * true if hit i ranks below hit j: a lower score, or the same score
+    * offered later
+    */
+   private boolean weaker( int i, int j )
+   {
+      return _score[ i ] < _score[ j ]
+             || ( _score[ i ] == _score[ j ] && _order[ i ] > _order[ j ] );
+   }
+   //------------------------ siftUp( int ) -----------------------------
+   private void siftUp( int i )
+   {
+      while ( i > 0 && weaker( i, ( i - 1 ) / 2 ))
+      {
+         swap( i, ( i - 1 ) / 2 );
+         i = ( i - 1 ) / 2;
+      }
+   }
+   //------------------------ siftDown( int, int ) -----------------------------
+   /**
+    * restore the heap below i, among the first size hits
+    */
+   private void siftDown( int i, int size )
+   {
+      while ( true )
+      {
+         int child = 2 * i + 1;
+         if ( child >= size )
+            return;
+         if ( child + 1 < size && weaker( child + 1, child ))
+            child++;
+         if ( ! weaker( child, i ))
+            return;
+         swap( i, child );
+         i = child;
+      }
+   }
+   //------------------------ set( int, int, int, int, int, boolean ) ----------
+   private void set( int i, int refPos, int readPos, int score, int order,
+                     boolean reverse )
+   {
+      _refPos[ i ] = refPos;
+      _readPos[ i ] = readPos;
+      _score[ i ] = score;
+      _order[ i ] = order;
+      _reverse[ i ] = reverse;
+   }
+   //------------------------ swap( int, int ) -----------------------------
+   private void swap( int i, int j )
+   {
+      int t = _refPos[ i ]; _refPos[ i ] = _refPos[ j ]; _refPos[ j ] = t;
+      t = _readPos[ i ]; _readPos[ i ] = _readPos[ j ]; _readPos[ j ] = t;
+      t = _score[ i ]; _score[ i ] = _score[ j ]; _score[ j ] = t;
+      t = _order[ i ]; _order[ i ] = _order[ j ]; _order[ j ] = t;
+      boolean r = _reverse[ i ]; _reverse[ i ] = _reverse[ j ]; _reverse[ j ] = r;
+   }
+}
@@ -0,0 +1,93 @@
+/**
+ * UngappedExtender -- scores a seed hit by comparing the read base for
+ *       base with the reference along the seed's diagonal: forward from
+ *       the seed to the end of the read, then back from the seed to the
+ *       start. Read bases that fall off either end of the seed's contig
+ *       do not match.
+ *
+ *       A hit is abandoned, with score 0, once at least earlyExitBases
+ *       have been compared and fewer than a third of them matched.
+ *
+ *       The bases are compared 32 at a time: PackedDNA.mismatchMask gives
+ *       one bit per differing base, a block with no mismatches costs one
+ *       bitCount, and the loop only stops at the mismatches themselves,
+ *       where the early exit test is made just as if the bases had been
+ *       compared one by one.
+ *
+ *       This is fast, but a single insertion or deletion in the read
+ *       shifts the rest of it off the diagonal; BandedSWExtender allows
+ *       for gaps.
+ */
+package prog9;
+
+public class UngappedExtender implements Extender
+{
+   //------------------------- class variables ---------------------------------
+   public final static int    earlyExitBases = 24;
+
+   //---------------------- extend( PackedDNA, int, int, PackedDNA, int, int ) --
+   public int extend( PackedDNA ref, int refStart, int refEnd,
+                      PackedDNA read, int refPos, int readPos )
+   {
+      int diagonal = refPos - readPos;
+      int len = read.length();
+      int onRefEnd = Math.min( len, refEnd - diagonal );
+      int onRefStart = Math.max( 0, refStart - diagonal );
+      int matches = 0;
+      int compared = 0;
+
+      // forward from the seed, 32 bases a block
+      for ( int s = readPos; s < onRefEnd; s += 32 )
+      {
+         int n = Math.min( 32, onRefEnd - s );
+         long all = ref.mismatchMask( diagonal + s, read, s ) 
+                    & PackedDNA.lowBases( n );
+         long diff = all;
+         for ( int q = 0; diff != 0; q++, diff &= diff - 1 )
+         {
+            int offset = Long.numberOfTrailingZeros( diff ) >> 1;
+            if ( hopeless( compared + offset + 1, matches + offset - q ))
+               return 0;
+         }
+         compared += n;
+         matches += n - Long.bitCount( all );
+      }
+      for ( int s = Math.max( readPos, onRefEnd ); s < len; s++ ) // off the end
+         if ( hopeless( ++compared, matches ))
+            return 0;
+
+      // back from the seed, 32 bases a block, highest first
+      for ( int hi = readPos; hi > onRefStart; hi -= 32 )
+      {
+         int lo = Math.max( onRefStart, hi - 32 );
+         int n = hi - lo;
+         long all = ref.mismatchMask( diagonal + lo, read, lo ) 
+                    & PackedDNA.lowBases( n );
+         long diff = all;
+         for ( int q = 0; diff != 0; q++, diff ^= Long.highestOneBit( diff ))
+         {
+            int offset = ( 63 - Long.numberOfLeadingZeros( diff )) >> 1;
+            if ( hopeless( compared + n - offset, matches + n - offset - 1 - q ))
+               return 0;
+         }
+         compared += n;
+         matches += n - Long.bitCount( all );
+      }
+      for ( int s = Math.min( readPos, onRefStart ) - 1; s >= 0; s-- ) // off the start
+         if ( hopeless( ++compared, matches ))
+            return 0;
+
+      return matches * 100 / len;
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //---------------------- hopeless( int, int ) ----------
+   /**
+    * true once compared bases, of which matches matched, show the hit is
+    * not worth finishing
+    */
+   private static boolean hopeless( int compared, int matches )
+   {
+      return compared >= earlyExitBases && compared > 3 * matches;
+   }
+}
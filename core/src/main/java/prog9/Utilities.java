@@ -6,18 +6,16 @@
   *        void   frame()
   *        void   sleep( int msecs )
   *        int    getArg( String[], int, int )
-  *        String getFileName()
   * 
+  *  It uses only java.base, so the command line programs can use it; the
+  *  file chooser the GUI asks for file names with is in GUI.
   */
-
-import javax.swing.*;
-import java.io.*;
+package prog9;
 
 public  class Utilities 
 {
    //-------------------- class variables -----------------------
   private static int frameTime = 100;
-  private static JFileChooser chooser = null;
  
   //---------------------- class methods ------------------------
   
@@ -119,37 +117,5 @@ public  class Utilities
         }
         return defaultVal;
     }
-    
-    //---------------------- String getFileName( String ) -----------------------------
-    /**
-     * Use a JFileChooser dialog to get a valid file name from a user.
-     *   Will not return the name unless the file exists.
-     * Returns null if no valid file selected.
-     */
-    public static String getFileName( String prompt )
-    {
-       String fileName = null;
-       
-       if ( chooser == null )
-       {
-          chooser = new JFileChooser();
-          chooser.setCurrentDirectory( new File( "." ) );
-       }
-       chooser.setDialogTitle( prompt );
-       
-       int returnVal = chooser.showOpenDialog( null );
-       while ( fileName == null && returnVal != JFileChooser.CANCEL_OPTION ) 
-       {
-          if ( returnVal == JFileChooser.APPROVE_OPTION )
-          {
-             File f = chooser.getSelectedFile();
-             if ( f.isFile() )
-                fileName = f.getPath();
-             else
-                returnVal = chooser.showOpenDialog( null );
-          }
-       }
-       return fileName;
-    }
 
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+/**
+ * ContigOverhangTest -- the Aligner places a read that hangs off the
+ *       start of a contig at the contig start, so it is written as aligned
+ *       at POS 1, whether the contig is the first in the reference or a
+ *       later one.
+ */
+package prog9;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContigOverhangTest
+{
+   //------------------------- instance variables ------------------------------
+   @TempDir
+   Path     _dir;
+
+   //---------------------- overhangContigStart() -------------------------------
+   @Test
+   public void overhangContigStart() throws IOException
+   {
+      Random random = new Random( 416 );
+      String c1 = FMIndexTest.randomDNA( random, 600 );
+      String c2 = FMIndexTest.randomDNA( random, 600 );
+      Path ref = _dir.resolve( "ref.fa" );
+      Files.write( ref, ( ">c1\n" + c1 + "\n>c2\n" + c2 + "\n" ).getBytes() );
+      Path reads = _dir.resolve( "reads.fa" );
+      Files.write( reads, ( ">over1\n" + FMIndexTest.randomDNA( random, 6 )
+                            + c1.substring( 0, 94 ) + "\n>over2\n"
+                            + FMIndexTest.randomDNA( random, 6 )
+                            + c2.substring( 0, 94 ) + "\n" ).getBytes() );
+      Path out = _dir.resolve( "out.txt" );
+
+      Aligner aligner = new Aligner( new AlignLog(
+                           _dir.resolve( "log.txt" ).toString(), AlignLog.INFO ));
+      aligner.setIndexFiles( false );
+      aligner.setReference( new FastaFile( ref.toString() ));
+      aligner.setReads( new FastaFile( reads.toString() ));
+      try ( AlignmentWriter writer = new AlignmentWriter( out.toString() ))
+      {
+         aligner.setListener( writer );
+         aligner.align();
+      }
+      finally
+      {
+         aligner.close();
+      }
+
+      java.util.List<String> lines = Files.readAllLines( out );
+      assertEquals( 3, lines.size() );
+      checkLine( lines.get( 1 ), "over1", "c1" );
+      checkLine( lines.get( 2 ), "over2", "c2" );
+   }
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //---------------------- checkLine( String, String, String ) -----------------
+   /**
+    * line is the forward alignment of read at POS 1 of contig
+    */
+   private void checkLine( String line, String read, String contig )
+   {
+      String[] fields = line.split( "\t" );
+      assertEquals( read, fields[ 0 ] );
+      assertEquals( "0", fields[ 1 ], line );
+      assertEquals( contig, fields[ 2 ], line );
+      assertEquals( "1", fields[ 3 ], line );
+      assertEquals( "94", fields[ 5 ], line );
+      assertEquals( "+", fields[ 7 ], line );
+   }
+}
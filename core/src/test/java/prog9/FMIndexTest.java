@@ -0,0 +1,111 @@
+/**
+ * FMIndexTest -- the FM-index must find exactly the hits the k-mer hash
+ *       index finds, for every seed of random references, including
+ *       references whose length + 1 is a multiple of the occurrence
+ *       count block.
+ */
+package prog9;
+
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FMIndexTest
+{
+   //------------------------- class variables ---------------------------------
+   private final static int    K = 8;
+
+   //---------------------- blockBoundaryLengths() -------------------------------
+   /**
+    * lengths 64k - 1 fill the occurrence blocks exactly
+    */
+   @Test
+   public void blockBoundaryLengths()
+   {
+      Random random = new Random( 416 );
+      for ( int n: new int[] { 63, 127, 191, 255, 64 * 40 - 1 } )
+         checkAgainstKmerIndex( randomDNA( random, n ), random );
+   }
+   //---------------------- randomLengths() -------------------------------
+   @Test
+   public void randomLengths()
+   {
+      Random random = new Random( 9 );
+      for ( int t = 0; t < 200; t++ )
+         checkAgainstKmerIndex( randomDNA( random, K + random.nextInt( 600 )),
+                                random );
+   }
+   //---------------------- specialCharacters() -------------------------------
+   /**
+    * seeds across an N are not indexed by either
+    */
+   @Test
+   public void specialCharacters()
+   {
+      Random random = new Random( 27 );
+      for ( int t = 0; t < 50; t++ )
+      {
+         StringBuilder dna = new StringBuilder( randomDNA( random,
+                                                 K + random.nextInt( 300 )));
+         for ( int i = 0; i < dna.length(); i += 1 + random.nextInt( 40 ))
+            dna.setCharAt( i, 'N' );
+         checkAgainstKmerIndex( dna.toString(), random );
+      }
+   }
+   //---------------------- matchLength() -------------------------------
+   @Test
+   public void matchLength()
+   {
+      PackedDNA ref = new PackedDNA( "ACGTACGGTTACGT" );
+      FMIndex fm = new FMIndex( ref, 4 );
+      assertEquals( 6, fm.matchLength( new PackedDNA( "TTGTACGG" ), 8 ));
+      assertEquals( 14, fm.matchLength( ref, ref.length() ));
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //---------------------- checkAgainstKmerIndex( String, Random ) -------------
+   /**
+    * every seed of the reference, and some random seeds, must have the
+    * same hit positions in both indexes
+    */
+   static void checkAgainstKmerIndex( String dna, Random random )
+   {
+      PackedDNA ref = new PackedDNA( dna );
+      FMIndex fm = new FMIndex( ref, K );
+      KmerIndex kmer = new KmerIndex( ref, K );
+      for ( int i = 0; i + K <= ref.length(); i++ )
+         assertEquals( hits( kmer, ref, i ), hits( fm, ref, i ),
+                       "length " + ref.length() + ", seed at " + i );
+      for ( int t = 0; t < 20; t++ )
+      {
+         PackedDNA seed = new PackedDNA( randomDNA( random, K ));
+         assertEquals( hits( kmer, seed, 0 ), hits( fm, seed, 0 ),
+                       "length " + ref.length() + ", seed " + seed );
+      }
+   }
+   //---------------------- hits( SeedIndex, PackedDNA, int ) -------------------
+   /**
+    * the sorted hit positions of the seed at dna[ start ], empty if it is
+    * not found or not valid
+    */
+   static ArrayList<Integer> hits( SeedIndex index, PackedDNA dna, int start )
+   {
+      ArrayList<Integer> positions = new ArrayList<Integer>();
+      long range = index.findHits( dna, start );
+      if ( range < 0 )
+         return positions;
+      for ( int h = (int) ( range >>> 32 ); h < (int) range; h++ )
+         positions.add( index.hitAt( h ));
+      Collections.sort( positions );
+      return positions;
+   }
+   //---------------------- randomDNA( Random, int ) ----------------------------
+   static String randomDNA( Random random, int n )
+   {
+      char[] dna = new char[ n ];
+      for ( int i = 0; i < n; i++ )
+         dna[ i ] = "ACGT".charAt( random.nextInt( 4 ));
+      return new String( dna );
+   }
+}
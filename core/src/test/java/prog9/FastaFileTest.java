@@ -0,0 +1,34 @@
+/**
+ * FastaFileTest -- a FastaFile that is read and one that is memory mapped
+ *       have the same composite, whatever the case of the file.
+ */
+package prog9;
+
+import java.io.*;
+import java.nio.file.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FastaFileTest
+{
+   //------------------------- instance variables ------------------------------
+   @TempDir
+   Path     _dir;
+
+   //---------------------- mappedMatchesRead() -------------------------------
+   @Test
+   public void mappedMatchesRead() throws IOException
+   {
+      Path file = _dir.resolve( "mixed.fa" );
+      Files.write( file, ( ">one first\nacgtnACGT.acgt\nacg\n"
+                           + ">two\nggttaacc\n>three ragged\nAC\nacgt\nA\n" ).getBytes() );
+      FastaFile read = new FastaFile( file.toString() );
+      FastaFile mapped = new FastaFile( file.toString(), true );
+      assertEquals( "ACGTNACGT-ACGTACGGGTTAACCACACGTA", read.getComposite().toString() );
+      assertEquals( read.getComposite().toString(), mapped.getComposite().toString() );
+      assertEquals( read.getPackedComposite().toString(),
+                    mapped.getPackedComposite().toString() );
+   }
+}
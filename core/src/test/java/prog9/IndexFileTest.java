@@ -0,0 +1,132 @@
+/**
+ * IndexFileTest -- each kind of index saved and loaded again finds the
+ *       same hits, and a file that is corrupt, truncated, or for other
+ *       settings or another reference is not loaded.
+ */
+package prog9;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexFileTest
+{
+   //------------------------- instance variables ------------------------------
+   @TempDir
+   Path     _dir;
+
+   private PackedDNA  _ref = new PackedDNA( FMIndexTest.randomDNA(
+                                                new Random( 416 ), 5000 ));
+
+   //---------------------- roundTrip() -------------------------------
+   @Test
+   public void roundTrip()
+   {
+      checkRoundTrip( "kmer-11111111", new KmerIndex( _ref, 8 ));
+      checkRoundTrip( "kmer-1101101", new KmerIndex( _ref, "1101101" ));
+      checkRoundTrip( "kmer-rc-11111111", new KmerIndex( _ref, "11111111", true ));
+      checkRoundTrip( "min-11111111-5", new MinimizerIndex( _ref, "11111111", 5 ));
+      checkRoundTrip( "fm8", new FMIndex( _ref, 8 ));
+   }
+   //---------------------- corruptData() -------------------------------
+   @Test
+   public void corruptData() throws IOException
+   {
+      String file = save( "kmer-11111111", new KmerIndex( _ref, 8 ));
+      byte[] bytes = Files.readAllBytes( Paths.get( file ));
+      bytes[ bytes.length - 5 ] ^= 1;
+      Files.write( Paths.get( file ), bytes );
+      assertNull( IndexFile.load( file, "kmer-11111111", _ref ));
+   }
+   //---------------------- truncated() -------------------------------
+   @Test
+   public void truncated() throws IOException
+   {
+      String file = save( "fm8", new FMIndex( _ref, 8 ));
+      byte[] bytes = Files.readAllBytes( Paths.get( file ));
+      for ( int length: new int[] { 0, 6, 30, bytes.length - 1 } )
+      {
+         Files.write( Paths.get( file ), Arrays.copyOf( bytes, length ));
+         assertNull( IndexFile.load( file, "fm8", _ref ), "length " + length );
+      }
+   }
+   //---------------------- badNameLength() -------------------------------
+   /**
+    * the settings name length is read before the checksum is checked, so
+    * a huge or negative one must not be allocated
+    */
+   @Test
+   public void badNameLength() throws IOException
+   {
+      String file = save( "kmer-rc-11111111", new KmerIndex( _ref, "11111111", true ));
+      byte[] bytes = Files.readAllBytes( Paths.get( file ));
+      for ( int length: new int[] { 0x7ff00000, -1, bytes.length } )
+      {
+         ByteBuffer.wrap( bytes ).putInt( 8, length );
+         Files.write( Paths.get( file ), bytes );
+         assertNull( IndexFile.load( file, "kmer-rc-11111111", _ref ), "length " + length );
+      }
+   }
+   //---------------------- otherVersion() -------------------------------
+   @Test
+   public void otherVersion() throws IOException
+   {
+      String file = save( "fm8", new FMIndex( _ref, 8 ));
+      byte[] bytes = Files.readAllBytes( Paths.get( file ));
+      bytes[ 7 ]++;                       // the low byte of the version
+      Files.write( Paths.get( file ), bytes );
+      assertNull( IndexFile.load( file, "fm8", _ref ));
+   }
+   //---------------------- otherSettingsOrReference() -------------------------
+   @Test
+   public void otherSettingsOrReference()
+   {
+      String file = save( "kmer-11111111", new KmerIndex( _ref, 8 ));
+      assertNull( IndexFile.load( file, "kmer-1111111", _ref ));
+      PackedDNA changed = new PackedDNA( _ref );
+      changed.append( 'A' );
+      assertNull( IndexFile.load( file, "kmer-11111111", changed ));
+      String other = _ref.toString().substring( 1 ) + "A";
+      assertNull( IndexFile.load( file, "kmer-11111111", new PackedDNA( other )));
+      assertNull( IndexFile.load( _dir.resolve( "missing.idx" ).toString(),
+                                  "kmer-11111111", _ref ));
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //---------------------- save( String, SeedIndex ) ----------------------------
+   private String save( String settings, SeedIndex index )
+   {
+      String file = IndexFile.fileName( _dir.resolve( "ref.txt" ).toString(),
+                                        settings );
+      IndexFile.save( file, settings, _ref, index );
+      assertTrue( new File( file ).exists() );
+      assertFalse( new File( file + ".tmp" ).exists() );
+      return file;
+   }
+   //---------------------- checkRoundTrip( String, SeedIndex ) -----------------
+   /**
+    * the loaded index has the same hits as the saved one for every seed
+    */
+   private void checkRoundTrip( String settings, SeedIndex index )
+   {
+      SeedIndex loaded = IndexFile.load( save( settings, index ), settings, _ref );
+      assertNotNull( loaded, settings );
+      assertEquals( index.getClass(), loaded.getClass() );
+      assertEquals( index.kmerLength(), loaded.kmerLength() );
+      assertEquals( index.seedMask(), loaded.seedMask() );
+      assertEquals( index.canonical(), loaded.canonical() );
+      for ( int i = 0; i + index.kmerLength() <= _ref.length(); i++ )
+      {
+         assertEquals( FMIndexTest.hits( index, _ref, i ),
+                       FMIndexTest.hits( loaded, _ref, i ), settings + " at " + i );
+         long hits = index.findHits( _ref, i );
+         for ( int h = (int) ( hits >>> 32 ); hits >= 0 && h < (int) hits; h++ )
+            assertEquals( index.hitStrand( h ), loaded.hitStrand( h ));
+      }
+   }
+}
@@ -0,0 +1,85 @@
+/**
+ * KmerIndexTest -- a canonical index finds, for each seed, the hits of
+ *       the seed and of its reverse complement in a plain index, each on
+ *       the right strand.
+ */
+package prog9;
+
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KmerIndexTest
+{
+   //---------------------- canonicalContiguous() -------------------------------
+   @Test
+   public void canonicalContiguous()
+   {
+      Random random = new Random( 416 );
+      for ( int t = 0; t < 20; t++ )
+         checkCanonical( FMIndexTest.randomDNA( random, 50 + random.nextInt( 2000 )),
+                         KmerIndex.contiguous( 2 + random.nextInt( 10 )), random );
+   }
+   //---------------------- canonicalSpaced() -------------------------------
+   @Test
+   public void canonicalSpaced()
+   {
+      Random random = new Random( 27 );
+      for ( String shape: new String[] { "11011", "1101011", "1011101" } )
+         checkCanonical( FMIndexTest.randomDNA( random, 3000 ), shape, random );
+      assertThrows( IllegalArgumentException.class,
+                    () -> new KmerIndex( new PackedDNA( "ACGTACGT" ), "1101", true ));
+   }
+   //---------------------- palindrome() -------------------------------
+   /**
+    * a seed that is its own reverse complement is on both strands
+    */
+   @Test
+   public void palindrome()
+   {
+      PackedDNA ref = new PackedDNA( "TTACGTTT" );
+      KmerIndex index = new KmerIndex( ref, KmerIndex.contiguous( 4 ), true );
+      assertEquals( SeedIndex.BOTH, index.seedStrand( ref, 2 ));
+      assertEquals( Arrays.asList( 2 ), FMIndexTest.hits( index, ref, 2 ));
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //---------------------- checkCanonical( String, String, Random ) ------------
+   /**
+    * for every seed of the reference and some random ones, the canonical
+    * hits on the seed's strand are the plain hits of the seed, and those
+    * on the other strand the plain hits of its reverse complement
+    */
+   private static void checkCanonical( String dna, String shape, Random random )
+   {
+      PackedDNA ref = new PackedDNA( dna );
+      KmerIndex plain = new KmerIndex( ref, shape );
+      KmerIndex canonical = new KmerIndex( ref, shape, true );
+      assertTrue( canonical.canonical() );
+      int k = shape.length();
+      PackedDNA rc = new PackedDNA( 0 );
+      for ( int t = 0; t < ref.length() - k + 20; t++ )
+      {
+         PackedDNA seed = t <= ref.length() - k
+                             ? new PackedDNA( ref.subSequence( t, t + k ))
+                             : new PackedDNA( FMIndexTest.randomDNA( random, k ));
+         seed.reverseComplement( rc );
+         ArrayList<Integer> same = new ArrayList<Integer>();
+         ArrayList<Integer> other = new ArrayList<Integer>();
+         int strand = canonical.seedStrand( seed, 0 );
+         long hits = canonical.findHits( seed, 0 );
+         for ( int h = (int) ( hits >>> 32 ); hits >= 0 && h < (int) hits; h++ )
+         {
+            boolean onSeed = canonical.hitStrand( h ) == strand;
+            if ( onSeed || strand == SeedIndex.BOTH )
+               same.add( canonical.hitAt( h ));
+            if ( ! onSeed || strand == SeedIndex.BOTH )
+               other.add( canonical.hitAt( h ));
+         }
+         String what = shape + " seed " + seed;
+         assertEquals( FMIndexTest.hits( plain, seed, 0 ), same, what );
+         assertEquals( FMIndexTest.hits( plain, rc, 0 ), other, what );
+      }
+   }
+}
@@ -0,0 +1,97 @@
+/**
+ * PackedDNATest -- packing round trips, and reverseComplement against a
+ *       base at a time reverse complement, on lengths either side of the
+ *       32 base word, with special characters, into reused outputs.
+ */
+package prog9;
+
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedDNATest
+{
+   //---------------------- packAndUnpack() -------------------------------
+   @Test
+   public void packAndUnpack()
+   {
+      assertEquals( "ACGTNX-*", new PackedDNA( "acgtNX.*" ).toString() );
+      assertEquals( "", new PackedDNA( "" ).toString() );
+      assertThrows( IllegalArgumentException.class,
+                    () -> new PackedDNA( "ACGU" ));
+   }
+   //---------------------- reverseComplement() -------------------------------
+   @Test
+   public void reverseComplement()
+   {
+      assertEquals( "ACGGT", revComp( "ACCGT" ));
+      assertEquals( "TN-A", revComp( "T-NA" ));
+      Random random = new Random( 416 );
+      for ( int n: new int[] { 0, 1, 31, 32, 33, 63, 64, 65, 100, 257 } )
+      {
+         String dna = randomDNA( random, n, 0.0 );
+         assertEquals( slowRevComp( dna ), revComp( dna ), "length " + n );
+         dna = randomDNA( random, n, 0.1 );
+         assertEquals( slowRevComp( dna ), revComp( dna ), "length " + n );
+      }
+   }
+   //---------------------- reverseComplementReusesOutput() --------------------
+   /**
+    * out keeps nothing of what it held, longer or shorter, special or not
+    */
+   @Test
+   public void reverseComplementReusesOutput()
+   {
+      Random random = new Random( 27 );
+      PackedDNA out = new PackedDNA( 0 );
+      for ( int t = 0; t < 200; t++ )
+      {
+         String dna = randomDNA( random, random.nextInt( 150 ),
+                                 random.nextBoolean() ? 0.05 : 0.0 );
+         PackedDNA packed = new PackedDNA( dna );
+         packed.reverseComplement( out );
+         assertEquals( slowRevComp( dna ), out.toString() );
+         for ( int i = 0; i < out.length(); i++ )
+            assertEquals( out.charAt( i ) == 'N' || out.charAt( i ) == '-',
+                          out.isSpecial( i ));
+      }
+   }
+
+   //++++++++++++++++++++++ private utility methods ++++++++++++++++++++++++++++
+   //---------------------- revComp( String ) ----------------------------
+   private static String revComp( String dna )
+   {
+      PackedDNA out = new PackedDNA( 0 );
+      new PackedDNA( dna ).reverseComplement( out );
+      return out.toString();
+   }
+   //---------------------- slowRevComp( String ) ----------------------------
+   private static String slowRevComp( String dna )
+   {
+      StringBuilder out = new StringBuilder();
+      for ( int i = dna.length() - 1; i >= 0; i-- )
+      {
+         char c = Character.toUpperCase( dna.charAt( i ));
+         int code = "ACGT".indexOf( c );
+         out.append( code < 0 ? c : "TGCA".charAt( code ));
+      }
+      return out.toString();
+   }
+   //---------------------- randomDNA( Random, int, double ) --------------------
+   /**
+    * n random bases, each N or - with probability special
+    */
+   private static String randomDNA( Random random, int n, double special )
+   {
+      char[] dna = new char[ n ];
+      for ( int i = 0; i < n; i++ )
+      {
+         if ( random.nextDouble() < special )
+            dna[ i ] = random.nextBoolean() ? 'N' : '-';
+         else
+            dna[ i ] = "ACGT".charAt( random.nextInt( 4 ));
+      }
+      return new String( dna );
+   }
+}
@@ -0,0 +1,103 @@
+/**
+ * TopHitsTest -- the hits come out best first, ties in the order they
+ *       were offered, at most k of them, one per locus and strand.
+ */
+package prog9;
+
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopHitsTest
+{
+   //---------------------- bestFirst() -------------------------------
+   @Test
+   public void bestFirst()
+   {
+      TopHits hits = new TopHits();
+      hits.clear( 3 );
+      hits.offer( 100, 0, 5, false );
+      hits.offer( 200, 0, 9, false );
+      hits.offer( 300, 0, 1, false );
+      hits.offer( 400, 0, 7, false );
+      hits.offer( 500, 0, 2, false );
+      assertEquals( 3, hits.sort() );
+      assertEquals( 200, hits.refPos( 0 ));
+      assertEquals( 400, hits.refPos( 1 ));
+      assertEquals( 100, hits.refPos( 2 ));
+      assertEquals( 9, hits.score( 0 ));
+      assertEquals( 5, hits.score( 2 ));
+   }
+   //---------------------- tiesKeepOfferOrder() -------------------------------
+   @Test
+   public void tiesKeepOfferOrder()
+   {
+      TopHits hits = new TopHits();
+      hits.clear( 2 );
+      hits.offer( 100, 0, 4, false );
+      hits.offer( 200, 0, 4, false );
+      hits.offer( 300, 0, 4, false );    // no better than the root: dropped
+      assertEquals( 2, hits.sort() );
+      assertEquals( 100, hits.refPos( 0 ));
+      assertEquals( 200, hits.refPos( 1 ));
+   }
+   //---------------------- sameLocus() -------------------------------
+   /**
+    * nearby read starts on one strand are one hit, the better one; the
+    * other strand is another hit
+    */
+   @Test
+   public void sameLocus()
+   {
+      TopHits hits = new TopHits();
+      hits.clear( 4 );
+      hits.offer( 110, 10, 3, false );           // read starts at 100
+      hits.offer( 125, 20, 6, false );           // starts at 105: same locus
+      hits.offer( 158, 50, 2, false );           // starts at 108: weaker
+      hits.offer( 100, 0, 4, true );             // other strand
+      assertEquals( 2, hits.sort() );
+      assertEquals( 6, hits.score( 0 ));
+      assertEquals( 105, hits.start( 0 ));
+      assertFalse( hits.isReverse( 0 ));
+      assertEquals( 20, hits.readPos( 0 ));
+      assertTrue( hits.isReverse( 1 ));
+   }
+   //---------------------- randomOffers() -------------------------------
+   /**
+    * against a full sort of distinct loci, with clear() reusing the arrays
+    */
+   @Test
+   public void randomOffers()
+   {
+      Random random = new Random( 416 );
+      TopHits hits = new TopHits();
+      for ( int t = 0; t < 100; t++ )
+      {
+         int k = 1 + random.nextInt( 6 );
+         int n = random.nextInt( 30 );
+         hits.clear( k );
+         ArrayList<int[]> all = new ArrayList<int[]>();
+         for ( int i = 0; i < n; i++ )
+         {
+            int score = random.nextInt( 10 );
+            int refPos = 100 * i;             // loci far apart
+            hits.offer( refPos, 0, score, false );
+            all.add( new int[] { score, i, refPos } );
+         }
+         Collections.sort( all, new Comparator<int[]>()
+         {
+            public int compare( int[] a, int[] b )
+            {
+               return a[ 0 ] != b[ 0 ] ? b[ 0 ] - a[ 0 ] : a[ 1 ] - b[ 1 ];
+            }
+         } );
+         assertEquals( Math.min( k, n ), hits.sort() );
+         for ( int i = 0; i < hits.size(); i++ )
+         {
+            assertEquals( all.get( i )[ 0 ], hits.score( i ));
+            assertEquals( all.get( i )[ 2 ], hits.refPos( i ));
+         }
+      }
+   }
+}
@@ -4,6 +4,8 @@
  * rdb
  * 03/10/09
  */
+package prog9;
+
 import javax.swing.*;
 import java.awt.*;
 
@@ -21,17 +23,8 @@ public class AlignDNA extends JFrame
       this.setDefaultCloseOperation( JFrame.EXIT_ON_CLOSE );
       
       // optional command line arguments are reference file and reads file
-      int argIndex = 0;
-      
-      if ( args.length > 0 && args[ 0 ].equals( "-b" ) )
-      {
-         GUI.batch = true;
-         argIndex = 1;
-      }
-      _appPanel = new GUI( this, Utilities.getArg( args, argIndex, null ),
-                                 Utilities.getArg( args, argIndex + 1, null ));
-      if ( GUI.batch )
-         return;
+      _appPanel = new GUI( this, Utilities.getArg( args, 0, null ),
+                                 Utilities.getArg( args, 1, null ));
       
       this.add( _appPanel );
             
@@ -40,10 +33,16 @@ public class AlignDNA extends JFrame
       this.setVisible( true );
    }
   //------------------ main ------------------------------------------   
-   public static void main( String [ ] args ) 
+   /**
+    * -b runs in batch mode: the remaining arguments go to BatchAlign, and
+    * no window is created
+    */
+   public static void main( String [ ] args ) throws java.io.IOException
    {
       String myArgs[] = { "smallRef.txt", "smallReads.txt" };
-      if ( args.length == 0 )
+      if ( args.length > 0 && args[ 0 ].equals( "-b" ) )
+         BatchAlign.main( java.util.Arrays.copyOfRange( args, 1, args.length ));
+      else if ( args.length == 0 )
          new AlignDNA( "AlignDNA", myArgs );
       else
          new AlignDNA( "AlignDNA", args );
@@ -7,9 +7,13 @@
  *        where they fit best -- if they fit well enough. These are displayed
  *        underneath the consensus, hopefully in a non-overlapping manner.
  * 
+ *        A reference of several contigs is shown as one strip, the contigs
+ *        end to end, with a line and the contig name at the start of each.
+ *
  *        There are scrollbars in horizontal and vertical directions.
  * 
  */
+package prog9;
 
 import javax.swing.JPanel;
 import javax.swing.*;
@@ -24,7 +28,8 @@ public class DisplayPanel extends JPanel
    static private  DisplayPanel theDisplay;
    
    //------------------- instance variables ------------------------
-   private String    _reference;
+   private CharSequence _reference;
+   private ContigTable  _contigs = null;
    private List<String,DNASequence> _readList;
    
    // variables for organizing reads
@@ -51,6 +56,7 @@ public class DisplayPanel extends JPanel
    private int       _minBorderWidth = 3;
    private int       _readHeight = 4;
    private int       _readOffset = 6;
+   private char[]    _text = new char[ 0 ];  // letters for drawDNA, reused
 
    private int       _defaultW   = 20000;
    private int       _defaultH   = 1000; 
@@ -65,8 +71,6 @@ public class DisplayPanel extends JPanel
       theDisplay = this;
       _gui = gui;
       _readList = new List<String,DNASequence>();
-      if ( GUI.batch )
-         return;
       _tracks   = new Vector<List<String,DNASequence>>();
       setLayout( null );
       setPreferredSize( new Dimension( _defaultW, _defaultH ));
@@ -104,13 +108,23 @@ public class DisplayPanel extends JPanel
          }
       } );
    }      
-   //----------------------- setReference( String ) ---------------------
+   //----------------------- setReference( CharSequence ) ---------------------
    /**
     * define a new list to display
     */
-   public void setReference( String dna )
+   public void setReference( CharSequence dna )
    {
       _reference = dna;
+      _contigs = null;
+      update();
+   }
+   //----------------------- setContigs( ContigTable ) ---------------------
+   /**
+    * mark where each contig of the reference starts
+    */
+   public void setContigs( ContigTable contigs )
+   {
+      _contigs = contigs;
       update();
    }
    //----------------------- clearReads( ) ----------------
@@ -190,8 +204,6 @@ public class DisplayPanel extends JPanel
     */
    public void update()
    {
-      if ( GUI.batch )
-         return;
       this.revalidate();
       this.repaint();
    }
@@ -201,8 +213,6 @@ public class DisplayPanel extends JPanel
     */
    public void updateTracks()
    {
-      if ( GUI.batch )
-         return;
       _tracks = new Vector<List<String,DNASequence>>();
       DNASequence seq = _readList.first();
       while ( seq != null )
@@ -222,8 +232,6 @@ public class DisplayPanel extends JPanel
     */
    private void assignReadToTrack( DNASequence seq )
    {
-      if ( GUI.batch ) 
-         return;
       int t = 0;   // start at track 0
       boolean assigned = false;
       while ( t < _tracks.size() && !assigned )
@@ -309,17 +317,49 @@ public class DisplayPanel extends JPanel
       
       Graphics2D brush2 = (Graphics2D) brush;
       drawDNA( brush2, _reference, _referenceX, _referenceY, _nucHeight );
+      drawContigs( brush2 );
       
       drawReads( brush2 );
    }
+   //------------ drawContigs( Graphics2D  ) ---------------------
+   /**
+    * Draw a line down from the start of each contig in the clip area,
+    * with the contig's name above the reference
+    */
+   private void drawContigs( Graphics2D brush )
+   {
+      if ( _contigs == null || _contigs.size() < 2 )
+         return;
+      int first = 0;
+      int last = _contigs.size() - 1;
+      Rectangle clip = brush.getClipBounds();
+      if ( clip != null )
+      {
+         first = _contigs.find( ( clip.x - _referenceX ) / _nucWidth );
+         last = _contigs.find( ( clip.x + clip.width - _referenceX ) / _nucWidth );
+      }
+      int bottom = Math.max( getHeight(), _readStartY );
+      brush.setFont( new Font( "SansSerif", Font.PLAIN, 10 ));
+      for ( int c = first; c <= last; c++ )
+      {
+         int x = _referenceX + _contigs.start( c ) * _nucWidth;
+         brush.setColor( Color.DARK_GRAY );
+         brush.drawLine( x, _referenceY - 2, x, bottom );
+         brush.setColor( Color.BLACK );
+         brush.drawString( _contigs.name( c ), x + 2, _referenceY - 4 );
+      }
+   }
    //------------ drawReads( Graphics2D  ) ---------------------
    /**
-    * Generate display for the reads
+    * Generate display for the reads; the two reads of a pair that both
+    * aligned are joined by a line
     */
    private void drawReads( Graphics2D brush )
    {
       if ( _readList == null || _readList.size() == 0 )
          return;
+      IdentityHashMap<DNASequence,Point> drawnAt 
+                                = new IdentityHashMap<DNASequence,Point>();
       int trackY = _readStartY;
       for ( List<String,DNASequence> track: _tracks )
       {
@@ -329,34 +369,96 @@ public class DisplayPanel extends JPanel
             int p = seq.getReferencePosition();
             if ( p >= 0 )
             {
-               int len = seq.getDNA().length();
+               int len = seq.length();
                //System.out.println( "Pos,len: " + p + " " + len );
-               drawDNA( brush, seq.getDNA(), 
-                       _referenceX + p * _nucWidth,
-                       trackY + ( _readOffset ) * seq.getOverlap(), 
-                       _readHeight );
+               int x = _referenceX + p * _nucWidth;
+               int y = trackY + ( _readOffset ) * seq.getOverlap();
+               drawDNA( brush, seq.isReverse() ? seq.getReverseComplement()
+                                               : seq.getPacked(), 
+                        x, y, _readHeight );
+               drawStrand( brush, x, y, len, seq.isReverse() );
+               if ( seq.getMate() != null )
+                  drawnAt.put( seq, new Point( x, y ));
             }
             seq = track.next();
         }
          trackY += _readOffset;
       }
-      
+      drawMateLinks( brush, drawnAt );
+   }
+   //------------ drawMateLinks( Graphics2D, Map ) ---------------------
+   /**
+    * join the inner ends of each pair whose reads were both drawn
+    */
+   private void drawMateLinks( Graphics2D brush, Map<DNASequence,Point> drawnAt )
+   {
+      brush.setColor( Color.GRAY );
+      for ( Map.Entry<DNASequence,Point> e: drawnAt.entrySet() )
+      {
+         DNASequence seq = e.getKey();
+         Point mateAt = drawnAt.get( seq.getMate() );
+         if ( ! seq.isFirstMate() || mateAt == null )
+            continue;
+         Point at = e.getValue();
+         DNASequence left = seq;
+         if ( mateAt.x < at.x )
+         {
+            left = seq.getMate();
+            Point t = at;
+            at = mateAt;
+            mateAt = t;
+         }
+         int dy = _readHeight / 2;
+         brush.drawLine( at.x + left.length() * _nucWidth, at.y + dy,
+                         mateAt.x, mateAt.y + dy );
+      }
+   }
+   //------------ drawStrand( Graphics2D, int, int, int, boolean ) ---------------
+   /**
+    * Mark the strand of a read drawn at x, y: an arrowhead past its right
+    * end for the forward strand, past its left end for a read that aligned
+    * as its reverse complement. The read is drawn as the reverse
+    * complement then, so it lines up with the reference.
+    */
+   private void drawStrand( Graphics2D brush, int x, int y, int len,
+                            boolean reverse )
+   {
+      int h = _readHeight;
+      int tip = reverse ? x - h : x + len * _nucWidth + h;
+      int base = reverse ? x - 1 : x + len * _nucWidth + 1;
+      brush.setColor( reverse ? Color.ORANGE : Color.BLACK );
+      brush.fillPolygon( new int[] { base, tip, base },
+                         new int[] { y, y + h / 2, y + h }, 3 );
    }
-   //------------ drawDNA( Graphics2D, String, int, int, int  ) ---------------------
+   //------------ drawDNA( Graphics2D, CharSequence, int, int, int  ) ---------------------
    /**
-    * Generate display for a dna sequence
+    * Generate display for a dna sequence; only the nucleotides inside the
+    * clip area are drawn, so a long reference costs no more than a short one.
+    * The letters are copied into _text, which is reused, rather than into
+    * a String per sequence.
     */
-   private void drawDNA( Graphics2D brush, String dna, 
+   private void drawDNA( Graphics2D brush, CharSequence dna, 
                          int xStart, int yStart, int height )
    {
       if ( dna == null )
          return;
       int dx = _nucWidth;
       int dy = height;
-      int x = xStart;
       int y = yStart;
       
-      for ( int n = 0; n < dna.length(); n++ )
+      int first = 0;
+      int last = dna.length();
+      Rectangle clip = brush.getClipBounds();
+      if ( clip != null )
+      {
+         first = Math.max( first, ( clip.x - xStart ) / dx );
+         last = Math.min( last, ( clip.x + clip.width - xStart ) / dx + 1 );
+      }
+      if ( first >= last )
+         return;
+      
+      int x = xStart + first * dx;
+      for ( int n = first; n < last; n++ )
       {
          switch ( dna.charAt( n ) )
          {
@@ -383,7 +485,12 @@ public class DisplayPanel extends JPanel
          brush.setFont( new Font( "Monospaced", Font.PLAIN, _fontSize ));
          brush.setColor( Color.BLACK );
          int textBaseline = (int) ( dy * 0.75 );
-         brush.drawString( dna, xStart, yStart + textBaseline );
+         int n = last - first;
+         if ( _text.length < n )
+            _text = new char[ n ];
+         for ( int i = 0; i < n; i++ )
+            _text[ i ] = dna.charAt( first + i );
+         brush.drawChars( _text, 0, n, xStart + first * dx, yStart + textBaseline );
       }
    }   
 }
@@ -8,19 +8,21 @@
  * @author rdb
  * 
  */
+package prog9;
 
 import javax.swing.*;
 import javax.swing.border.*;
 import javax.swing.event.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.*;
 import java.util.*;
 
-public class GUI extends JPanel 
+public class GUI extends JPanel implements AlignmentListener
 {
    //------------------ class variables ---------------------------
    static private GUI    theGUI;   
-   public static boolean batch = false;
+   static private JFileChooser chooser = null;
    
    //---------------- instance variables ---------------------------
    private Container     _parent;     // not really used
@@ -34,6 +36,7 @@ public class GUI extends JPanel
    private String        _sequencePickedId = "";
    private JLabel        _unaligned;
    private int           _unalignedCount = 0;
+   private JLabel        _metrics;    // counts and timings of the aligner
 
    private Aligner       _aligner;
    private int           _nextToAlign = 0;
@@ -52,18 +55,7 @@ public class GUI extends JPanel
  
       _display = new DisplayPanel( this );
       _aligner = new Aligner();
-      
-      if ( GUI.batch )
-      {
-         if ( referenceFileName == null || readsFileName == null )
-         {
-            System.err.println( "Need to specify both files for batch" );
-         }         
-         readReference( referenceFileName );
-         readReads( readsFileName );
-         _aligner.align();
-         return;
-      }
+      _aligner.setListener( this );
       
       int displayWidth = _display.getPreferredSize().width; 
       int displayHeight = _display.getPreferredSize().height;
@@ -90,12 +82,12 @@ public class GUI extends JPanel
    }
    //------------------- makeSouth() -----------------------------------
    /**
-    * Create three sliders and 2 JLabels in the south region
+    * Create five sliders and 4 JLabels in the south region
     */
    private JPanel makeSouth()
    {
       //create display panel size scrollbar in the south
-      JPanel southPanel = new JPanel( new GridLayout( 2, 3 ));
+      JPanel southPanel = new JPanel( new GridLayout( 3, 3 ));
       
       southPanel.add( 
          new LabeledSlider( "Nucleotide width", 1, 11, 10 )
@@ -131,6 +123,31 @@ public class GUI extends JPanel
          }
       ); 
       
+      southPanel.add( 
+         new LabeledSlider( "Seed length ( 8 )", 4, 20, 8 )
+         { 
+            public void valueChanged( int newLength )
+            {
+               // keep an index file only for the default length, so that
+               // dragging the slider does not leave one per length behind
+               _aligner.setIndexFiles( newLength == 8 );
+               _aligner.setSeedLength( newLength );
+               this.setText( "Seed length ( " + newLength + " )" );
+            }
+         }
+      ); 
+      
+      southPanel.add( 
+         new LabeledSlider( "Seed stride ( 8 )", 1, 20, 8 )
+         { 
+            public void valueChanged( int newStride )
+            {
+               _aligner.setSeedStride( newStride );
+               this.setText( "Seed stride ( " + newStride + " )" );
+            }
+         }
+      ); 
+      
       // create a label for reference  position of mouse
       _referencePosition = new JLabel( "  Reference position: " + _refPos ); 
       _referencePosition.setBorder( new LineBorder( Color.BLACK ) );
@@ -145,14 +162,39 @@ public class GUI extends JPanel
       _unaligned = new JLabel( " Unaligned count: " + _unalignedCount );
       _unaligned.setBorder( new LineBorder( Color.BLACK ) );
       southPanel.add( _unaligned );
+
+      // create a label for the aligner's metrics; the tool tip has them all
+      _metrics = new JLabel( "  " + _aligner.getMetrics().summary() );
+      _metrics.setBorder( new LineBorder( Color.BLACK ) );
+      southPanel.add( _metrics );
       return southPanel;
    }
 
    //----------------- setReferencePosition --------------------------
+   /**
+    * show pos as a contig name and the position within that contig
+    */
    public void setReferencePosition( int pos )
    {
       _refPos = pos;
-      _referencePosition.setText( "  Reference position: " + _refPos + "  " );
+      String where = "" + _refPos;
+      if ( _reference != null && _reference.size() > 1 )
+      {
+         ContigTable contigs = _reference.getContigs();
+         int c = contigs.find( pos );
+         where = contigs.name( c ) + ":" + ( pos - contigs.start( c ));
+      }
+      _referencePosition.setText( "  Reference position: " + where + "  " );
+   }
+   //----------------- showMetrics() --------------------------
+   /**
+    * show the aligner's metrics in the status area
+    */
+   private void showMetrics()
+   {
+      AlignMetrics metrics = _aligner.getMetrics();
+      _metrics.setText( "  " + metrics.summary() );
+      _metrics.setToolTipText( "<html><pre>" + metrics.toJson() + "</pre></html>" );
    }
    //----------------- setSequencePicked( String ) --------------------------
    public void setSequencePicked( String id )
@@ -164,16 +206,31 @@ public class GUI extends JPanel
    public static void setUnalignedCount( int count )
    {
       theGUI._unalignedCount = count;
-      if ( GUI.batch )
-         return;
       theGUI._unaligned.setText( "  Unaligned sequences: " + count );
    }
+   //----------------- readAligned( Alignment ) ------------------------
+   /**
+    * the aligner found a place for the read; show it
+    */
+   public void readAligned( Alignment result )
+   {
+      DisplayPanel.addRead( result.getRead() );
+   }
+   //----------------- readNotAligned( Alignment ) ------------------------
+   public void readNotAligned( Alignment result )
+   {
+   }
+   //----------------- alignmentDone( int ) --------------------------
+   public void alignmentDone( int unaligned )
+   {
+      setUnalignedCount( unaligned );
+   }
    //------------------- makeButtonMenu --------------------------------
    private Component makeButtonMenu()
    {
       // JPanel defaults to FlowLayout
-      String[] labels = { "Reference File", "Reads File", "Align all", 
-                          "Align range", "Align first", "Align next" };
+      String[] labels = { "Reference File", "Reads File", "Mates File",
+                          "Align all", "Align range", "Align first", "Align next" };
       
       JPanel bMenu = new JPanel( new GridLayout( 1, 0 )); 
       JButton button;
@@ -209,15 +266,18 @@ public class GUI extends JPanel
                 readReads();
                 break;
              case 2:
-                alignAll();
+                readMates();
                 break;
              case 3:
-                alignRange();
+                alignAll();
                 break;
              case 4:
-                alignFirst();
+                alignRange();
                 break;
              case 5:
+                alignFirst();
+                break;
+             case 6:
                 alignNext();
                 break;
           }               
@@ -226,21 +286,22 @@ public class GUI extends JPanel
    //---------------------- readReference() -------------------------------
    private void readReference( )
    {
-      String fileName = Utilities.getFileName( "Choose Reference file" );
+      String fileName = getFileName( "Choose Reference file" );
       if ( fileName != null && fileName.length() != 0 )
          readReference( fileName );
    }
    //-------------------- readReference( String ) ------------------------------
    private void readReference( String fileName )
    { 
-      _reference = new FastaFile( fileName );
-      _display.setReference( _reference.getComposite() );
+      _reference = new FastaFile( fileName, true );
+      _display.setReference( _reference.getPackedComposite() );
+      _display.setContigs( _reference.getContigs() );
       _aligner.setReference( _reference ); 
    }
    //---------------------- readReads() -------------------------------
    private void readReads( )
    {
-      String fileName = Utilities.getFileName( "Choose Read file" );
+      String fileName = getFileName( "Choose Read file" );
       if ( fileName != null && fileName.length() != 0 )
          readReads( fileName );
    }
@@ -253,12 +314,33 @@ public class GUI extends JPanel
       _aligner.setReads( _reads );
       _display.clearReads();
    }
+   //---------------------- readMates() -------------------------------
+   /**
+    * read the second reads of pairs: read i is the mate of read i of the
+    * reads file, and the two are aligned together
+    */
+   private void readMates( )
+   {
+      if ( _reads == null )
+      {
+         JOptionPane.showMessageDialog( null, "Read the reads file first" );
+         return;
+      }
+      String fileName = getFileName( "Choose Mates file" );
+      if ( fileName != null && fileName.length() != 0 )
+      {
+         _aligner.setMates( new FastaFile( fileName ));
+         _display.clearReads();
+      }
+   }
    
    //-------------------- alignAll(  ) ------------------------------
    private void alignAll() 
    { 
       _display.clearReads();
+      _aligner.getMetrics().reset();
       _aligner.align();
+      showMetrics();
       _display.update();
    }
    
@@ -280,6 +362,7 @@ public class GUI extends JPanel
             if ( count > 0 )
                JOptionPane.showMessageDialog( null, 
                                        count + " reads did not align" );
+            showMetrics();
             _display.update();
             _nextToAlign = last + 1;
          }
@@ -303,6 +386,7 @@ public class GUI extends JPanel
       else
          JOptionPane.showMessageDialog( null, "No reads!" );
       
+      showMetrics();
       _display.update();
    }
   
@@ -314,16 +398,44 @@ public class GUI extends JPanel
       else if ( ! _aligner.align( _nextToAlign++ ) )
           JOptionPane.showMessageDialog( null, "Read did not align" );
      
+      showMetrics();
       _display.update();
    }
   
+   //---------------------- getFileName( String ) -----------------------------
+   /**
+    * Use a JFileChooser dialog to get a valid file name from a user.
+    *   Will not return the name unless the file exists.
+    * Returns null if no valid file selected.
+    */
+   private static String getFileName( String prompt )
+   {
+      String fileName = null;
+      
+      if ( chooser == null )
+      {
+         chooser = new JFileChooser();
+         chooser.setCurrentDirectory( new File( "." ) );
+      }
+      chooser.setDialogTitle( prompt );
+      
+      int returnVal = chooser.showOpenDialog( null );
+      while ( fileName == null && returnVal != JFileChooser.CANCEL_OPTION ) 
+      {
+         if ( returnVal == JFileChooser.APPROVE_OPTION )
+         {
+            File f = chooser.getSelectedFile();
+            if ( f.isFile() )
+               fileName = f.getPath();
+            else
+               returnVal = chooser.showOpenDialog( null );
+         }
+      }
+      return fileName;
+   }
    //------------------ main ------------------------------------------   
-   public static void main( String [ ] args ) 
+   public static void main( String [ ] args ) throws java.io.IOException
    {
-      String myArgs[] = { "smallRef.txt", "smallReads.txt" };
-      if ( args.length == 0 )
-         new AlignDNA( "AlignDNA", myArgs );
-      else
-         new AlignDNA( "AlignDNA", args );
+      AlignDNA.main( args );
    }
 }
@@ -5,6 +5,7 @@
  * the code needed to modify a value. 
  * 
  */
+package prog9;
 
 import javax.swing.*;
 import javax.swing.border.*;